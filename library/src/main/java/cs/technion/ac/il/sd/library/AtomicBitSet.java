@@ -0,0 +1,62 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size bit set whose bits can be set by many threads at once without locking
+ */
+public final class AtomicBitSet {
+
+    private final int size;
+    private final AtomicLongArray words;
+
+    public AtomicBitSet(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("negative size: " + size);
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int i) {
+        checkIndex(i);
+        return (words.get(i >>> 6) & (1L << i)) != 0;
+    }
+
+    /**
+     * Sets bit i
+     *
+     * @return true iff this call set it, false if it was already set
+     */
+    public boolean set(int i) {
+        checkIndex(i);
+        int w = i >>> 6;
+        long mask = 1L << i;
+        long word;
+        do {
+            word = words.get(w);
+            if ((word & mask) != 0)
+                return false;
+        } while (!words.compareAndSet(w, word, word | mask));
+        return true;
+    }
+
+    /**
+     * @return copy of the bits currently set
+     */
+    public BitSet toBitSet() {
+        long[] copy = new long[words.length()];
+        for (int w = 0; w < copy.length; w++)
+            copy[w] = words.get(w);
+        return BitSet.valueOf(copy);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("bit " + i + " out of 0.." + (size - 1));
+    }
+}
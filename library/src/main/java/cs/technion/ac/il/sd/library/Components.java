@@ -0,0 +1,82 @@
+package cs.technion.ac.il.sd.library;
+
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Strongly connected components of a {@link DirectedGraph}, as computed by
+ * {@link GraphUtils#stronglyConnectedComponents(DirectedGraph)}.
+ * Components are listed in topological order of the condensation.
+ */
+public final class Components<V> {
+
+    private final IndexedGraph<V> indexed;
+    private final IntComponents components;
+    private final List<Set<V>> sets;
+
+    Components(IndexedGraph<V> indexed, IntComponents components) {
+        this.indexed = indexed;
+        this.components = components;
+        List<Set<V>> sets = new ArrayList<>(components.componentCount());
+        for (int c = 0; c < components.componentCount(); c++)
+            sets.add(Collections.unmodifiableSet(new HashSet<>(indexed.verticesOf(components.membersOf(c)))));
+        this.sets = Collections.unmodifiableList(sets);
+    }
+
+    /**
+     * @return all components, in topological order of the condensation
+     */
+    public List<Set<V>> getComponents() {
+        return sets;
+    }
+
+    /**
+     * @return components holding a cycle, in topological order of the condensation. Empty iff the graph is acyclic
+     */
+    public List<Set<V>> getNonTrivialComponents() {
+        List<Set<V>> nonTrivial = new ArrayList<>();
+        for (int c : components.nonTrivialComponents())
+            nonTrivial.add(sets.get(c));
+        return nonTrivial;
+    }
+
+    /**
+     * @return the component v belongs to
+     * @throws IllegalArgumentException if v is not a vertex of the graph
+     */
+    public Set<V> componentOf(V v) {
+        return sets.get(components.componentOf(indexed.idOf(v)));
+    }
+
+    /**
+     * @return acyclic graph whose vertices are the components, with an edge between two components iff
+     *  the graph has an edge between their members
+     */
+    public DirectedGraph<Set<V>, DefaultEdge> getCondensation() {
+        DirectedGraph<Set<V>, DefaultEdge> condensation = new DefaultDirectedGraph<>(DefaultEdge.class);
+        sets.forEach(condensation::addVertex);
+        IntGraph dag = components.condensation();
+        for (int c = 0; c < dag.vertexCount(); c++)
+            for (int i = 0, d = dag.outDegreeOf(c); i < d; i++)
+                condensation.addEdge(sets.get(c), sets.get(dag.successor(c, i)));
+        return condensation;
+    }
+
+    /**
+     * @return the same components, over the vertex ids of {@link #getIndexedGraph()}
+     */
+    public IntComponents getIntComponents() {
+        return components;
+    }
+
+    public IndexedGraph<V> getIndexedGraph() {
+        return indexed;
+    }
+}
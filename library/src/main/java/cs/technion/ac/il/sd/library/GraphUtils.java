@@ -1,18 +1,36 @@
 package cs.technion.ac.il.sd.library;
 
 import org.jgrapht.DirectedGraph;
-import org.jgrapht.alg.CycleDetector;
 import org.jgrapht.event.TraversalListener;
+import org.jgrapht.graph.DirectedSubgraph;
 import org.jgrapht.traverse.BreadthFirstIterator;
 import org.jgrapht.traverse.DepthFirstIterator;
 import org.jgrapht.traverse.GraphIterator;
-import org.jgrapht.traverse.TopologicalOrderIterator;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * GraphUtils library
@@ -28,9 +46,140 @@ public class GraphUtils {
      */
 
     public static <V,E> Optional<Iterator<V>> toposort(DirectedGraph<V, E> graph)  {
-        if (hasCycle(graph))
+        ToposortResult<V> result = toposortOrCycle(graph);
+        if (!result.isSorted())
             return Optional.empty();
-        return Optional.of(new TopologicalOrderIterator<>(graph));
+        return Optional.of(result.getOrder().iterator());
+    }
+
+    /**
+     * Performs topological sort on DirectedGraph and detects cycles in the same pass (Kahn's algorithm).
+     * If there is no valid sort, the vertices that block it are found by trimming, from the vertices left
+     * unsorted, those which cannot reach back into a cycle.
+     *
+     * @param graph graph on which topological sort will be applied
+     * @return the topological order of graph, or the vertices on (or between) its cycles
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static <V,E> ToposortResult<V> toposortOrCycle(DirectedGraph<V, E> graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        Map<V, Integer> pendingIn = new HashMap<>();
+        List<V> order = new ArrayList<>(graph.vertexSet().size());
+        for (V v : graph.vertexSet()) {
+            int inDegree = graph.inDegreeOf(v);
+            if (inDegree == 0)
+                order.add(v);
+            else
+                pendingIn.put(v, inDegree);
+        }
+        for (int head = 0; head < order.size(); head++) {
+            for (E e : graph.outgoingEdgesOf(order.get(head))) {
+                V target = graph.getEdgeTarget(e);
+                if (pendingIn.merge(target, -1, Integer::sum) == 0) {
+                    pendingIn.remove(target);
+                    order.add(target);
+                }
+            }
+        }
+        if (pendingIn.isEmpty())
+            return new ToposortResult<>(order, Collections.emptySet());
+        return new ToposortResult<>(order, trimAcyclicTails(graph, pendingIn.keySet()));
+    }
+
+    /**
+     * Removes from unsorted, repeatedly, every vertex with no outgoing edge into unsorted.
+     * What remains lies on a cycle or on a path between cycles.
+     */
+    private static <V,E> Set<V> trimAcyclicTails(DirectedGraph<V, E> graph, Set<V> unsorted) {
+        Map<V, Integer> pendingOut = new HashMap<>();
+        Deque<V> trimmed = new ArrayDeque<>();
+        for (V v : unsorted) {
+            int outDegree = (int) graph.outgoingEdgesOf(v).stream()
+                    .filter(e -> unsorted.contains(graph.getEdgeTarget(e)))
+                    .count();
+            pendingOut.put(v, outDegree);
+            if (outDegree == 0)
+                trimmed.add(v);
+        }
+        Set<V> blocking = new HashSet<>(unsorted);
+        while (!trimmed.isEmpty()) {
+            V v = trimmed.poll();
+            blocking.remove(v);
+            for (E e : graph.incomingEdgesOf(v)) {
+                V source = graph.getEdgeSource(e);
+                if (blocking.contains(source) && pendingOut.merge(source, -1, Integer::sum) == 0)
+                    trimmed.add(source);
+            }
+        }
+        return blocking;
+    }
+
+    /**
+     * Topological levels of an acyclic {@link DirectedGraph}, as a lazy stream.
+     * Level k holds every vertex whose longest chain of dependencies, following edges back to a source,
+     * has k edges, so the vertices of a level do not depend on each other and all of them depend only on
+     * lower levels. Each level is found when the stream gets to it, by the same in-degree counting as
+     * {@link #toposortOrCycle(DirectedGraph)}, so consuming the whole stream takes linear time.
+     *
+     * @param graph acyclic graph to split into levels
+     * @return graph's levels, from level 0 (its sources) up
+     * @throws IllegalArgumentException if graph is null, or, once the stream runs out of levels, if graph has a cycle
+     */
+    public static <V,E> Stream<List<V>> topologicalLevels(DirectedGraph<V,E> graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        Iterator<List<V>> levels = new Iterator<List<V>>() {
+            private Map<V, Integer> pendingIn;
+            private List<V> current;
+            private List<V> next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null)
+                    next = pendingIn == null ? sources() : expand();
+                if (next.isEmpty() && !pendingIn.isEmpty())
+                    throw new IllegalArgumentException("graph has a cycle through " + pendingIn.size() + " unleveled vertices");
+                return !next.isEmpty();
+            }
+
+            @Override
+            public List<V> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                List<V> level = next;
+                next = null;
+                current = level;
+                return level;
+            }
+
+            private List<V> sources() {
+                pendingIn = new HashMap<>();
+                List<V> level = new ArrayList<>();
+                for (V v : graph.vertexSet()) {
+                    int inDegree = graph.inDegreeOf(v);
+                    if (inDegree == 0)
+                        level.add(v);
+                    else
+                        pendingIn.put(v, inDegree);
+                }
+                return level;
+            }
+
+            private List<V> expand() {
+                List<V> level = new ArrayList<>();
+                for (V v : current)
+                    for (E e : graph.outgoingEdgesOf(v)) {
+                        V target = graph.getEdgeTarget(e);
+                        if (pendingIn.merge(target, -1, Integer::sum) == 0) {
+                            pendingIn.remove(target);
+                            level.add(target);
+                        }
+                    }
+                return level;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(levels, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     /**
@@ -40,7 +189,20 @@ public class GraphUtils {
      * @return true iff graph has cycle
      */
     public static <V,E> boolean hasCycle(DirectedGraph<V,E> graph) {
-        return new CycleDetector<>(graph).detectCycles();
+        return !toposortOrCycle(graph).isSorted();
+    }
+
+    /**
+     * Finds the strongly connected components of a {@link DirectedGraph}, in linear time.
+     * See {@link #stronglyConnectedComponents(IntGraph)}.
+     *
+     * @param graph graph to search
+     * @return the components of graph and its condensation
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static <V,E> Components<V> stronglyConnectedComponents(DirectedGraph<V,E> graph) {
+        IndexedGraph<V> indexed = IndexedGraph.of(graph);
+        return new Components<>(indexed, stronglyConnectedComponents(indexed.graph()));
     }
 
     /**
@@ -192,4 +354,687 @@ public class GraphUtils {
         return reachable;
     }
 
+    /**
+     * Transitive reduction of an acyclic {@link DirectedGraph}: the edges of graph without every edge (u, v)
+     * for which v is reachable from u through another path. See {@link #transitiveReduction(IntGraph)}.
+     *
+     * @param graph acyclic graph to reduce
+     * @return a view of graph with all of its vertices and only the edges of its transitive reduction
+     * @throws IllegalArgumentException if graph is null or has a cycle
+     */
+    public static <V,E> DirectedGraph<V,E> transitiveReduction(DirectedGraph<V,E> graph) {
+        IndexedGraph<V> indexed = IndexedGraph.of(graph);
+        IntGraph reduced = transitiveReduction(indexed.graph());
+        Set<E> kept = new HashSet<>(reduced.edgeCount() * 2);
+        for (int s = 0; s < reduced.vertexCount(); s++) {
+            Set<V> targets = new HashSet<>();
+            for (int i = 0, d = reduced.outDegreeOf(s); i < d; i++)
+                targets.add(indexed.vertexOf(reduced.successor(s, i)));
+            for (E e : graph.outgoingEdgesOf(indexed.vertexOf(s)))
+                if (targets.remove(graph.getEdgeTarget(e)))
+                    kept.add(e);
+        }
+        return new DirectedSubgraph<>(graph, graph.vertexSet(), kept);
+    }
+
+    /**
+     * Get all vertices reachable from any of several source vertices in a {@link DirectedGraph}, in a single
+     * traversal which visits every vertex at most once.
+     * @param graph the graph to search
+     * @param sources source vertices
+     * @return union of the vertices reachable from every source, sources included
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static <V,E> Set<V> getAllReachableVerticesFromSources(DirectedGraph<V,E> graph, Collection<V> sources)
+    {
+        Set<V> reachable = new HashSet<>();
+        Deque<V> stack = new ArrayDeque<>();
+        for (V source : sources) {
+            if (!graph.containsVertex(source))
+                throw new IllegalArgumentException("no such vertex: " + source);
+            if (reachable.add(source))
+                stack.push(source);
+        }
+        while (!stack.isEmpty()) {
+            for (E e : graph.outgoingEdgesOf(stack.pop())) {
+                V target = graph.getEdgeTarget(e);
+                if (reachable.add(target))
+                    stack.push(target);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Tags every vertex reachable from several source vertices in a {@link DirectedGraph} with the source
+     * which reaches it first, in a single breadth first traversal from all sources at once.
+     * A vertex is tagged with the source closest to it, and among equally close sources, the one that comes first.
+     * @param graph the graph to search
+     * @param sources source vertices, in order of preference
+     * @return the first source to reach every reachable vertex, a source being tagged with itself
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static <V,E> Map<V,V> getFirstReachingSources(DirectedGraph<V,E> graph, Collection<V> sources)
+    {
+        Map<V,V> reachedBy = new LinkedHashMap<>();
+        Deque<V> queue = new ArrayDeque<>();
+        for (V source : sources) {
+            if (!graph.containsVertex(source))
+                throw new IllegalArgumentException("no such vertex: " + source);
+            if (reachedBy.putIfAbsent(source, source) == null)
+                queue.add(source);
+        }
+        while (!queue.isEmpty()) {
+            V v = queue.poll();
+            V source = reachedBy.get(v);
+            for (E e : graph.outgoingEdgesOf(v)) {
+                V target = graph.getEdgeTarget(e);
+                if (reachedBy.putIfAbsent(target, source) == null)
+                    queue.add(target);
+            }
+        }
+        return reachedBy;
+    }
+
+    /**
+     * Level synchronous parallel breadth first search of a {@link DirectedGraph} from several sources,
+     * on the common fork-join pool. See {@link #parallelBFSLevels(ForkJoinPool, IntGraph, int...)}.
+     * @param graph the graph to search
+     * @param sources source vertices, which make up level 0
+     * @return reachable vertices grouped by their distance from the closest source
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static <V,E> List<List<V>> parallelBFSLevels(DirectedGraph<V,E> graph, Collection<V> sources)
+    {
+        IndexedGraph<V> indexed = IndexedGraph.of(graph);
+        int[] ids = sources.stream().mapToInt(indexed::idOf).toArray();
+        return parallelBFSLevels(ForkJoinPool.commonPool(), indexed.graph(), ids).stream()
+                .map(indexed::verticesOf)
+                .collect(Collectors.toList());
+    }
+
+    /************ IntGraph ************/
+
+    /**
+     * Performs topological sort on an {@link IntGraph} (Kahn's algorithm)
+     *
+     * @param graph graph on which topological sort will be applied
+     * @return Optional array of all vertices in topological order
+     *  OR Optional.empty if there is no valid sort
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static Optional<int[]> toposort(IntGraph graph) {
+        int[] order = kahnOrder(graph);
+        return order.length == graph.vertexCount() ? Optional.of(order) : Optional.empty();
+    }
+
+    /**
+     * Performs topological sort on an {@link IntGraph} and detects cycles in the same pass,
+     * as {@link #toposortOrCycle(DirectedGraph)} does.
+     *
+     * @param graph graph on which topological sort will be applied
+     * @return the topological order of graph, or the vertices on (or between) its cycles
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static IntToposortResult toposortOrCycle(IntGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        BitSet vertices = new BitSet(graph.vertexCount());
+        vertices.set(0, graph.vertexCount());
+        return toposortOrCycle(graph, vertices);
+    }
+
+    /**
+     * Like {@link #toposortOrCycle(IntGraph)}, on the subgraph of graph induced by vertices,
+     * so edges from or to a vertex outside of vertices are ignored. Takes time linear in the subgraph.
+     *
+     * @param graph    graph on which topological sort will be applied
+     * @param vertices vertices of the subgraph to sort
+     * @return the topological order of the subgraph, or the vertices on (or between) its cycles
+     * @throws IllegalArgumentException if graph or vertices are null, or vertices holds a vertex not in graph
+     */
+    public static IntToposortResult toposortOrCycle(IntGraph graph, BitSet vertices) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        if (vertices == null)
+            throw new IllegalArgumentException("vertices is null");
+        if (vertices.length() > graph.vertexCount())
+            throw new IllegalArgumentException("no such vertex: " + (vertices.length() - 1));
+        int[] pendingIn = new int[graph.vertexCount()];
+        int[] order = new int[vertices.cardinality()];
+        int tail = 0;
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            for (int i = 0, d = graph.inDegreeOf(v); i < d; i++)
+                if (vertices.get(graph.predecessor(v, i)))
+                    pendingIn[v]++;
+            if (pendingIn[v] == 0)
+                order[tail++] = v;
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = order[head];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (vertices.get(u) && --pendingIn[u] == 0)
+                    order[tail++] = u;
+            }
+        }
+        if (tail == order.length)
+            return new IntToposortResult(order, new int[0]);
+        BitSet unsorted = (BitSet) vertices.clone();
+        for (int i = 0; i < tail; i++)
+            unsorted.clear(order[i]);
+        return new IntToposortResult(Arrays.copyOf(order, tail), trimAcyclicTails(graph, unsorted));
+    }
+
+    /**
+     * Removes from unsorted, repeatedly, every vertex with no outgoing edge into unsorted.
+     *
+     * @return what remains, which lies on a cycle or on a path between cycles, ascending
+     */
+    private static int[] trimAcyclicTails(IntGraph graph, BitSet unsorted) {
+        int[] pendingOut = new int[graph.vertexCount()];
+        int[] trimmed = new int[unsorted.cardinality()];
+        int tail = 0;
+        for (int v = unsorted.nextSetBit(0); v >= 0; v = unsorted.nextSetBit(v + 1)) {
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++)
+                if (unsorted.get(graph.successor(v, i)))
+                    pendingOut[v]++;
+            if (pendingOut[v] == 0)
+                trimmed[tail++] = v;
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = trimmed[head];
+            unsorted.clear(v);
+            for (int i = 0, d = graph.inDegreeOf(v); i < d; i++) {
+                int u = graph.predecessor(v, i);
+                if (unsorted.get(u) && --pendingOut[u] == 0)
+                    trimmed[tail++] = u;
+            }
+        }
+        return unsorted.stream().toArray();
+    }
+
+    /**
+     * Topological levels of an acyclic {@link IntGraph}, computed in a single linear pass.
+     * See {@link #topologicalLevels(DirectedGraph)}.
+     *
+     * @param graph acyclic graph to split into levels
+     * @return graph's levels, from level 0 (its sources) up
+     * @throws IllegalArgumentException if graph is null or has a cycle
+     */
+    public static int[][] topologicalLevels(IntGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        int n = graph.vertexCount();
+        int[] pendingIn = new int[n];
+        // vertices in level order, levels delimited by levelStarts
+        int[] order = new int[n];
+        int[] levelStarts = new int[n + 1];
+        int size = 0, levelCount = 0;
+        for (int v = 0; v < n; v++) {
+            pendingIn[v] = graph.inDegreeOf(v);
+            if (pendingIn[v] == 0)
+                order[size++] = v;
+        }
+        for (int from = 0; from < size; levelCount++) {
+            int to = size;
+            levelStarts[levelCount] = from;
+            for (int i = from; i < to; i++) {
+                int v = order[i];
+                for (int j = 0, d = graph.outDegreeOf(v); j < d; j++) {
+                    int u = graph.successor(v, j);
+                    if (--pendingIn[u] == 0)
+                        order[size++] = u;
+                }
+            }
+            from = to;
+        }
+        if (size != n)
+            throw new IllegalArgumentException("graph has a cycle through " + (n - size) + " unleveled vertices");
+        levelStarts[levelCount] = size;
+        int[][] levels = new int[levelCount][];
+        for (int k = 0; k < levelCount; k++)
+            levels[k] = Arrays.copyOfRange(order, levelStarts[k], levelStarts[k + 1]);
+        return levels;
+    }
+
+    /**
+     * Checks whether a given {@link IntGraph} has a cycle
+     *
+     * @param graph graph
+     * @return true iff graph has cycle
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static boolean hasCycle(IntGraph graph) {
+        return kahnOrder(graph).length != graph.vertexCount();
+    }
+
+    /**
+     * Get all sources of an {@link IntGraph} - all vertices with no incoming edges
+     * @param graph - graph to search
+     * @return - ascending array of sources in the received graph
+     */
+    public static int[] getSourcesVertices(IntGraph graph) {
+        return IntStream.range(0, graph.vertexCount())
+                .filter(v -> graph.inDegreeOf(v) == 0)
+                .toArray();
+    }
+
+    /**
+     * Get all leaves of an {@link IntGraph} - all vertices with no outgoing edges
+     * @param graph - graph to search
+     * @return - ascending array of leaves in the received graph
+     */
+    public static int[] getLeafVertices(IntGraph graph) {
+        return IntStream.range(0, graph.vertexCount())
+                .filter(v -> graph.outDegreeOf(v) == 0)
+                .toArray();
+    }
+
+    /**
+     * Get all reachable vertices from a specified source vertex in an {@link IntGraph}, source included.
+     * @param graph the graph to search
+     * @param source source vertex
+     * @return set of reachable vertex ids
+     * @throws IllegalArgumentException if the graph does not contain the specified start vertex
+     */
+    public static BitSet getAllReachableVerticesFromSource(IntGraph graph, int source) {
+        graph.checkVertex(source);
+        BitSet reachable = new BitSet(graph.vertexCount());
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = source;
+        reachable.set(source);
+        while (top > 0) {
+            int v = stack[--top];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (!reachable.get(u)) {
+                    reachable.set(u);
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = u;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Finds the strongly connected components of an {@link IntGraph} with Tarjan's algorithm, in linear time.
+     * The depth first search keeps its own stack instead of recursing, so it is safe on arbitrarily long paths.
+     *
+     * @param graph graph to search
+     * @return the components of graph, numbered in topological order of its condensation
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static IntComponents stronglyConnectedComponents(IntGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        int n = graph.vertexCount();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] componentOf = new int[n];
+        Arrays.fill(index, -1);
+        BitSet onStack = new BitSet(n);
+        int[] stack = new int[n];
+        int stackTop = 0;
+        // depth first search frames: a vertex, and the next of its edges to follow
+        int[] frameVertex = new int[n];
+        int[] frameEdge = new int[n];
+        int nextIndex = 0;
+        int emitted = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1)
+                continue;
+            int depth = 0;
+            frameVertex[0] = root;
+            frameEdge[0] = 0;
+            index[root] = low[root] = nextIndex++;
+            stack[stackTop++] = root;
+            onStack.set(root);
+            while (depth >= 0) {
+                int v = frameVertex[depth];
+                if (frameEdge[depth] < graph.outDegreeOf(v)) {
+                    int u = graph.successor(v, frameEdge[depth]++);
+                    if (index[u] == -1) {
+                        index[u] = low[u] = nextIndex++;
+                        stack[stackTop++] = u;
+                        onStack.set(u);
+                        depth++;
+                        frameVertex[depth] = u;
+                        frameEdge[depth] = 0;
+                    } else if (onStack.get(u)) {
+                        low[v] = Math.min(low[v], index[u]);
+                    }
+                    continue;
+                }
+                if (low[v] == index[v]) {
+                    // components are completed sinks first, so count them down from the last id after the search
+                    int u;
+                    do {
+                        u = stack[--stackTop];
+                        onStack.clear(u);
+                        componentOf[u] = emitted;
+                    } while (u != v);
+                    emitted++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = frameVertex[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        for (int v = 0; v < n; v++)
+            componentOf[v] = emitted - 1 - componentOf[v];
+        return new IntComponents(graph, componentOf, emitted);
+    }
+
+    /**
+     * Get all vertices reachable from any of several source vertices in an {@link IntGraph}, in a single
+     * traversal which visits every vertex at most once.
+     * @param graph the graph to search
+     * @param sources source vertices
+     * @return set of vertex ids reachable from any source, sources included
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static BitSet getAllReachableVerticesFromSources(IntGraph graph, int... sources) {
+        BitSet reachable = new BitSet(graph.vertexCount());
+        int[] stack = new int[Math.max(16, sources.length)];
+        int top = 0;
+        for (int source : sources) {
+            graph.checkVertex(source);
+            if (!reachable.get(source)) {
+                reachable.set(source);
+                stack[top++] = source;
+            }
+        }
+        while (top > 0) {
+            int v = stack[--top];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (!reachable.get(u)) {
+                    reachable.set(u);
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = u;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Tags every vertex reachable from several source vertices in an {@link IntGraph} with the source
+     * which reaches it first, as {@link #getFirstReachingSources(DirectedGraph, Collection)} does.
+     * @param graph the graph to search
+     * @param sources source vertices, in order of preference
+     * @return for every vertex, the first source to reach it, or -1 if no source does
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static int[] getFirstReachingSources(IntGraph graph, int... sources) {
+        int n = graph.vertexCount();
+        int[] reachedBy = new int[n];
+        Arrays.fill(reachedBy, -1);
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int source : sources) {
+            graph.checkVertex(source);
+            if (reachedBy[source] == -1) {
+                reachedBy[source] = source;
+                queue[tail++] = source;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (reachedBy[u] == -1) {
+                    reachedBy[u] = reachedBy[v];
+                    queue[tail++] = u;
+                }
+            }
+        }
+        return reachedBy;
+    }
+
+    /**
+     * Same as {@link #parallelBFSLevels(ForkJoinPool, IntGraph, int...)} on the common fork-join pool
+     */
+    public static List<int[]> parallelBFSLevels(IntGraph graph, int... sources) {
+        return parallelBFSLevels(ForkJoinPool.commonPool(), graph, sources);
+    }
+
+    /**
+     * Level synchronous parallel breadth first search of an {@link IntGraph} from several sources.
+     * Every level is expanded into the next by tasks on pool, each taking a slice of the level,
+     * and a vertex is claimed by the single task which first sets its bit in a shared {@link AtomicBitSet}.
+     * Levels smaller than a slice are expanded on the calling thread.
+     * @param pool pool to expand levels on
+     * @param graph the graph to search
+     * @param sources source vertices, which make up level 0
+     * @return reachable vertices grouped by their distance from the closest source,
+     *  the order of vertices within a level is unspecified
+     * @throws IllegalArgumentException if the graph does not contain one of the sources
+     */
+    public static List<int[]> parallelBFSLevels(ForkJoinPool pool, IntGraph graph, int... sources) {
+        AtomicBitSet visited = new AtomicBitSet(graph.vertexCount());
+        int[] level = new int[sources.length];
+        int size = 0;
+        for (int source : sources) {
+            graph.checkVertex(source);
+            if (visited.set(source))
+                level[size++] = source;
+        }
+        List<int[]> levels = new ArrayList<>();
+        level = Arrays.copyOf(level, size);
+        while (level.length > 0) {
+            levels.add(level);
+            level = level.length <= FrontierExpansion.SLICE
+                    ? FrontierExpansion.expand(graph, visited, level, 0, level.length)
+                    : FrontierExpansion.expand(pool, graph, visited, level);
+        }
+        return levels;
+    }
+
+    /**
+     * Expands a level of a parallel breadth first search into the next, one slice of the level per task
+     */
+    private static final class FrontierExpansion extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int SLICE = 1024;
+
+        private final IntGraph graph;
+        private final AtomicBitSet visited;
+        private final int[] level;
+        private final int[][] next;
+        private final int fromSlice;
+        private final int toSlice;
+
+        private FrontierExpansion(IntGraph graph, AtomicBitSet visited, int[] level, int[][] next, int fromSlice, int toSlice) {
+            this.graph = graph;
+            this.visited = visited;
+            this.level = level;
+            this.next = next;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+        }
+
+        @Override
+        protected void compute() {
+            if (toSlice - fromSlice == 1) {
+                next[fromSlice] = expand(graph, visited, level, fromSlice * SLICE, Math.min(level.length, (fromSlice + 1) * SLICE));
+                return;
+            }
+            int middle = (fromSlice + toSlice) >>> 1;
+            invokeAll(new FrontierExpansion(graph, visited, level, next, fromSlice, middle),
+                    new FrontierExpansion(graph, visited, level, next, middle, toSlice));
+        }
+
+        /**
+         * @return vertices claimed from the successors of level, expanding its slices on pool
+         */
+        private static int[] expand(ForkJoinPool pool, IntGraph graph, AtomicBitSet visited, int[] level) {
+            int[][] next = new int[(level.length + SLICE - 1) / SLICE][];
+            pool.invoke(new FrontierExpansion(graph, visited, level, next, 0, next.length));
+            int length = 0;
+            for (int[] slice : next)
+                length += slice.length;
+            int[] merged = new int[length];
+            int at = 0;
+            for (int[] slice : next) {
+                System.arraycopy(slice, 0, merged, at, slice.length);
+                at += slice.length;
+            }
+            return merged;
+        }
+
+        /**
+         * @return vertices claimed from the successors of level[from..to-1]
+         */
+        private static int[] expand(IntGraph graph, AtomicBitSet visited, int[] level, int from, int to) {
+            int[] claimed = new int[16];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                int v = level[i];
+                for (int j = 0, d = graph.outDegreeOf(v); j < d; j++) {
+                    int u = graph.successor(v, j);
+                    if (visited.set(u)) {
+                        if (size == claimed.length)
+                            claimed = Arrays.copyOf(claimed, size * 2);
+                        claimed[size++] = u;
+                    }
+                }
+            }
+            return Arrays.copyOf(claimed, size);
+        }
+    }
+
+    /**
+     * Transitive reduction of an acyclic {@link IntGraph}: the smallest graph with the same reachability,
+     * which drops every edge (u, v) for which v is reachable from u through another path, and every parallel edge.
+     * Reachability is kept as one bit set per vertex, filled in reverse topological order, only for vertices
+     * below a vertex with more than one successor, and each bit set is released once all of the vertex's
+     * predecessors were handled. This takes O(vertices * edges / 64) time at worst,
+     * and memory of up to vertices^2 bits for graphs that are wide in topological order.
+     * Only graphs with no vertex of more than one successor, such as plain chains, take linear time:
+     * a chain of k vertices below such a vertex copies a bit set at every step, which takes O(k * vertices / 64).
+     *
+     * @param graph acyclic graph to reduce
+     * @return the reduced graph, keeping the order of every vertex's remaining successors
+     * @throws IllegalArgumentException if graph is null or has a cycle
+     */
+    public static IntGraph transitiveReduction(IntGraph graph) {
+        int[] order = kahnOrder(graph);
+        if (order.length != graph.vertexCount())
+            throw new IllegalArgumentException("graph has a cycle");
+        return transitiveReduction(graph, order);
+    }
+
+    /**
+     * Like {@link #transitiveReduction(IntGraph)}, for callers who already sorted graph, which is not sorted again
+     *
+     * @param graph acyclic graph to reduce
+     * @param order topological order of all vertices of graph, such as {@link IntToposortResult#getOrder()}
+     * @return the reduced graph, keeping the order of every vertex's remaining successors
+     * @throws IllegalArgumentException if graph or order are null, or order does not hold every vertex
+     */
+    public static IntGraph transitiveReduction(IntGraph graph, int[] order) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        if (order == null)
+            throw new IllegalArgumentException("order is null");
+        int n = graph.vertexCount();
+        if (order.length != n)
+            throw new IllegalArgumentException("expected an order of " + n + " vertices, got " + order.length);
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++)
+            position[order[i]] = i;
+        // reachability is needed only below vertices with more than one successor, whose edges may be redundant
+        boolean[] needsReachable = new boolean[n];
+        for (int v : order)
+            if (needsReachable[v] || graph.outDegreeOf(v) > 1)
+                graph.forEachSuccessor(v, u -> needsReachable[u] = true);
+        boolean[][] keep = new boolean[n][];
+        BitSet[] reachable = new BitSet[n];
+        int[] pendingPredecessors = new int[n];
+        for (int v = 0; v < n; v++)
+            pendingPredecessors[v] = graph.inDegreeOf(v);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = order[i];
+            int degree = graph.outDegreeOf(v);
+            keep[v] = new boolean[degree];
+            if (degree <= 1 && !needsReachable[v]) {
+                Arrays.fill(keep[v], true);
+                if (degree == 1 && --pendingPredecessors[graph.successor(v, 0)] == 0)
+                    reachable[graph.successor(v, 0)] = null;
+                continue;
+            }
+            // a successor reachable through another successor comes after it in topological order
+            int[] successorPositions = new int[degree];
+            for (int j = 0; j < degree; j++)
+                successorPositions[j] = position[graph.successor(v, j)];
+            Arrays.sort(successorPositions);
+            BitSet covered = new BitSet();
+            int[] keptPositions = new int[degree];
+            int keptCount = 0;
+            for (int p : successorPositions) {
+                int u = order[p];
+                if (covered.get(u))
+                    continue;
+                keptPositions[keptCount++] = p;
+                covered.set(u);
+                covered.or(reachable[u]);
+            }
+            boolean[] used = new boolean[keptCount];
+            for (int j = 0; j < degree; j++) {
+                int u = graph.successor(v, j);
+                int k = Arrays.binarySearch(keptPositions, 0, keptCount, position[u]);
+                // only the first of parallel edges to u is kept
+                if (k >= 0 && !used[k]) {
+                    keep[v][j] = true;
+                    used[k] = true;
+                }
+                if (--pendingPredecessors[u] == 0)
+                    reachable[u] = null;
+            }
+            if (needsReachable[v])
+                reachable[v] = covered;
+        }
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 0; v < n; v++)
+            for (int j = 0; j < keep[v].length; j++)
+                if (keep[v][j])
+                    builder.addEdge(v, graph.successor(v, j));
+        return builder.build();
+    }
+
+    /**
+     * Kahn's algorithm
+     * @return vertices in topological order, which are all vertices iff graph has no cycle
+     */
+    private static int[] kahnOrder(IntGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        int n = graph.vertexCount();
+        int[] pendingIn = new int[n];
+        int[] order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            pendingIn[v] = graph.inDegreeOf(v);
+            if (pendingIn[v] == 0)
+                order[tail++] = v;
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = order[head];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (--pendingIn[u] == 0)
+                    order[tail++] = u;
+            }
+        }
+        return tail == n ? order : Arrays.copyOf(order, tail);
+    }
+
 }
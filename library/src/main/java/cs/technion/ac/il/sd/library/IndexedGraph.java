@@ -0,0 +1,87 @@
+package cs.technion.ac.il.sd.library;
+
+import org.jgrapht.DirectedGraph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adapter from a {@link DirectedGraph} to an {@link IntGraph}.
+ * Every vertex gets a dense int id, in the iteration order of the source graph's vertex set,
+ * and results computed on the {@link IntGraph} can be mapped back to the original vertices.
+ */
+public final class IndexedGraph<V> {
+
+    private final IntGraph graph;
+    private final List<V> vertices;
+    private final Map<V, Integer> ids;
+
+    private IndexedGraph(IntGraph graph, List<V> vertices, Map<V, Integer> ids) {
+        this.graph = graph;
+        this.vertices = vertices;
+        this.ids = ids;
+    }
+
+    /**
+     * Creates an {@link IntGraph} with the same vertices and edges as graph
+     *
+     * @param graph graph to convert
+     * @throws IllegalArgumentException if graph is null
+     */
+    public static <V, E> IndexedGraph<V> of(DirectedGraph<V, E> graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("graph is null");
+        List<V> vertices = new ArrayList<>(graph.vertexSet());
+        Map<V, Integer> ids = new HashMap<>(vertices.size() * 2);
+        for (int i = 0; i < vertices.size(); i++)
+            ids.put(vertices.get(i), i);
+        IntGraph.Builder builder = IntGraph.builder(vertices.size());
+        for (E e : graph.edgeSet())
+            builder.addEdge(ids.get(graph.getEdgeSource(e)), ids.get(graph.getEdgeTarget(e)));
+        return new IndexedGraph<>(builder.build(), Collections.unmodifiableList(vertices), ids);
+    }
+
+    public IntGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @return vertices of the original graph, indexed by id
+     */
+    public List<V> vertices() {
+        return vertices;
+    }
+
+    public V vertexOf(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * @throws IllegalArgumentException if v is not a vertex of the original graph
+     */
+    public int idOf(V v) {
+        Integer id = ids.get(v);
+        if (id == null)
+            throw new IllegalArgumentException("no such vertex: " + v);
+        return id;
+    }
+
+    public List<V> verticesOf(int[] ids) {
+        List<V> result = new ArrayList<>(ids.length);
+        for (int id : ids)
+            result.add(vertices.get(id));
+        return result;
+    }
+
+    public Set<V> verticesOf(BitSet ids) {
+        Set<V> result = new HashSet<>(ids.cardinality() * 2);
+        ids.stream().forEach(id -> result.add(vertices.get(id)));
+        return result;
+    }
+}
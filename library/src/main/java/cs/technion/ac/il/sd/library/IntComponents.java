@@ -0,0 +1,119 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Strongly connected components of an {@link IntGraph}, as computed by {@link GraphUtils#stronglyConnectedComponents(IntGraph)}.
+ * Components are numbered 0..componentCount-1 in topological order of the condensation,
+ * so an edge between two components always goes from the smaller component to the larger one.
+ */
+public final class IntComponents {
+
+    private final IntGraph graph;
+    private final int[] componentOf;
+    private final int[] memberOffsets;
+    private final int[] members;
+    private IntGraph condensation;
+
+    IntComponents(IntGraph graph, int[] componentOf, int componentCount) {
+        this.graph = graph;
+        this.componentOf = componentOf;
+        this.memberOffsets = new int[componentCount + 1];
+        this.members = new int[componentOf.length];
+        for (int c : componentOf)
+            memberOffsets[c + 1]++;
+        for (int c = 0; c < componentCount; c++)
+            memberOffsets[c + 1] += memberOffsets[c];
+        int[] next = Arrays.copyOf(memberOffsets, componentCount);
+        for (int v = 0; v < componentOf.length; v++)
+            members[next[componentOf[v]]++] = v;
+    }
+
+    public int componentCount() {
+        return memberOffsets.length - 1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if v is not a vertex of the graph
+     */
+    public int componentOf(int v) {
+        graph.checkVertex(v);
+        return componentOf[v];
+    }
+
+    /**
+     * @return ascending vertices of component c
+     */
+    public int[] membersOf(int c) {
+        checkComponent(c);
+        return Arrays.copyOfRange(members, memberOffsets[c], memberOffsets[c + 1]);
+    }
+
+    /**
+     * Passes every vertex of component c to action, in ascending order
+     */
+    public void forEachMember(int c, IntConsumer action) {
+        checkComponent(c);
+        for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++)
+            action.accept(members[m]);
+    }
+
+    public int sizeOf(int c) {
+        checkComponent(c);
+        return memberOffsets[c + 1] - memberOffsets[c];
+    }
+
+    /**
+     * @return true iff component c holds a cycle, that is, it has more than one vertex or a vertex with an edge to itself
+     */
+    public boolean isNonTrivial(int c) {
+        if (sizeOf(c) > 1)
+            return true;
+        int v = members[memberOffsets[c]];
+        for (int i = 0, d = graph.outDegreeOf(v); i < d; i++)
+            if (graph.successor(v, i) == v)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return ascending ids of the components holding a cycle, empty iff the graph is acyclic
+     */
+    public int[] nonTrivialComponents() {
+        return IntStream.range(0, componentCount()).filter(this::isNonTrivial).toArray();
+    }
+
+    /**
+     * @return graph whose vertices are the components, with an edge between two components iff
+     *  the graph has an edge between their members. It is acyclic and has no parallel edges.
+     */
+    public IntGraph condensation() {
+        if (condensation == null) {
+            int count = componentCount();
+            IntGraph.Builder builder = IntGraph.builder(count);
+            int[] lastSource = new int[count];
+            Arrays.fill(lastSource, -1);
+            for (int c = 0; c < count; c++) {
+                for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                    int v = members[m];
+                    for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                        int target = componentOf[graph.successor(v, i)];
+                        if (target != c && lastSource[target] != c) {
+                            lastSource[target] = c;
+                            builder.addEdge(c, target);
+                        }
+                    }
+                }
+            }
+            condensation = builder.build();
+        }
+        return condensation;
+    }
+
+    private void checkComponent(int c) {
+        if (c < 0 || c >= componentCount())
+            throw new IllegalArgumentException("no such component: " + c);
+    }
+}
@@ -0,0 +1,162 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compact, immutable directed graph whose vertices are the ints 0..vertexCount-1.
+ * Out-edges and in-edges are kept in compressed sparse row form, that is, one int array of
+ * neighbours per direction indexed by a per-vertex offsets array, so an edge costs two ints
+ * instead of an edge object and its hash map entries.
+ * Parallel edges are kept as given.
+ */
+public final class IntGraph {
+
+    private final int vertexCount;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private IntGraph(int vertexCount, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inSources) {
+        this.vertexCount = vertexCount;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    /**
+     * @param vertexCount number of vertices of the built graph
+     * @return a builder for a graph on vertices 0..vertexCount-1
+     */
+    public static Builder builder(int vertexCount) {
+        return new Builder(vertexCount);
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    public int outDegreeOf(int v) {
+        checkVertex(v);
+        return outOffsets[v + 1] - outOffsets[v];
+    }
+
+    public int inDegreeOf(int v) {
+        checkVertex(v);
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    /**
+     * @return the i'th target of an edge going out of v, 0 <= i < outDegreeOf(v)
+     */
+    public int successor(int v, int i) {
+        return outTargets[outOffsets[v] + i];
+    }
+
+    /**
+     * @return the i'th source of an edge coming into v, 0 <= i < inDegreeOf(v)
+     */
+    public int predecessor(int v, int i) {
+        return inSources[inOffsets[v] + i];
+    }
+
+    public void forEachSuccessor(int v, IntConsumer action) {
+        checkVertex(v);
+        for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++)
+            action.accept(outTargets[i]);
+    }
+
+    public void forEachPredecessor(int v, IntConsumer action) {
+        checkVertex(v);
+        for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++)
+            action.accept(inSources[i]);
+    }
+
+    /**
+     * @return this graph with every edge reversed, sharing this graph's arrays, so it takes constant time
+     */
+    public IntGraph reversed() {
+        return new IntGraph(vertexCount, inOffsets, inSources, outOffsets, outTargets);
+    }
+
+    /**
+     * @throws IllegalArgumentException if v is not a vertex of this graph
+     */
+    public void checkVertex(int v) {
+        if (v < 0 || v >= vertexCount)
+            throw new IllegalArgumentException("no such vertex: " + v);
+    }
+
+    @Override
+    public String toString() {
+        return "IntGraph{" +
+                "vertexCount=" + vertexCount +
+                ", edgeCount=" + edgeCount() +
+                '}';
+    }
+
+    /**
+     * Collects edges and packs them into an {@link IntGraph}
+     */
+    public static final class Builder {
+        private final int vertexCount;
+        private int[] sources;
+        private int[] targets;
+        private int edgeCount;
+
+        private Builder(int vertexCount) {
+            if (vertexCount < 0)
+                throw new IllegalArgumentException("negative vertex count: " + vertexCount);
+            this.vertexCount = vertexCount;
+            this.sources = new int[16];
+            this.targets = new int[16];
+        }
+
+        /**
+         * Adds an edge from source to target
+         *
+         * @throws IllegalArgumentException if source or target are not in 0..vertexCount-1
+         */
+        public Builder addEdge(int source, int target) {
+            if (source < 0 || source >= vertexCount || target < 0 || target >= vertexCount)
+                throw new IllegalArgumentException("edge (" + source + ", " + target + ") out of range");
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                targets = Arrays.copyOf(targets, edgeCount * 2);
+            }
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            edgeCount++;
+            return this;
+        }
+
+        public IntGraph build() {
+            int[] outOffsets = new int[vertexCount + 1];
+            int[] inOffsets = new int[vertexCount + 1];
+            int[] outTargets = new int[edgeCount];
+            int[] inSources = new int[edgeCount];
+            pack(sources, targets, outOffsets, outTargets);
+            pack(targets, sources, inOffsets, inSources);
+            return new IntGraph(vertexCount, outOffsets, outTargets, inOffsets, inSources);
+        }
+
+        /**
+         * Counting sort of the edges by from, keeping insertion order within every vertex
+         */
+        private void pack(int[] from, int[] to, int[] offsets, int[] neighbours) {
+            for (int e = 0; e < edgeCount; e++)
+                offsets[from[e] + 1]++;
+            for (int v = 0; v < vertexCount; v++)
+                offsets[v + 1] += offsets[v];
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            for (int e = 0; e < edgeCount; e++)
+                neighbours[next[from[e]]++] = to[e];
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index answering reachability queries on a fixed {@link IntGraph}, a vertex reaching itself included.
+ * The index holds, for every strongly connected component, the set of components it reaches.
+ * Components are numbered topologically, so a component only reaches components with larger ids,
+ * and the sets are filled in reverse topological order, each as the union of the sets of its successors.
+ * Every set is compressed, kept either as sorted runs of consecutive ids, which makes chains and trees take
+ * a run or a few per component, or as a bit set stored from the word of its own component up to the word of
+ * the last component it reaches, whichever is smaller.
+ * If the sets would take more than the given number of bytes, no sets are kept and queries traverse the graph instead.
+ */
+public final class IntReachabilityIndex {
+
+    /** Default limit on the memory taken by the reachability sets */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private final IntGraph graph;
+    private final IntComponents components;
+    /** Runs of every component's set as first and last id pairs, or null if the set is a bit set */
+    private final int[][] runs;
+    /** First word of every component's bit set, in words of the whole set of component ids */
+    private final int[] firstWords;
+    private final long[][] words;
+    private final long sizeInBytes;
+
+    private IntReachabilityIndex(IntGraph graph, IntComponents components, int[][] runs, int[] firstWords,
+                                 long[][] words, long sizeInBytes) {
+        this.graph = graph;
+        this.components = components;
+        this.runs = runs;
+        this.firstWords = firstWords;
+        this.words = words;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Same as {@link #of(IntGraph, long)} with {@link #DEFAULT_MAX_BYTES}
+     */
+    public static IntReachabilityIndex of(IntGraph graph) {
+        return of(graph, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param graph    graph to index, which must not change afterwards
+     * @param maxBytes limit on the memory taken by the reachability sets, beyond which queries traverse the graph
+     * @throws IllegalArgumentException if graph is null or maxBytes is negative
+     */
+    public static IntReachabilityIndex of(IntGraph graph, long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("negative memory limit: " + maxBytes);
+        IntComponents components = GraphUtils.stronglyConnectedComponents(graph);
+        IntGraph dag = components.condensation();
+        int count = dag.vertexCount();
+        int[][] runs = new int[count][];
+        int[] firstWords = new int[count];
+        long[][] words = new long[count][];
+        long bytes = 0;
+        for (int c = count - 1; c >= 0; c--) {
+            int[] merged = mergeRuns(dag, c, runs);
+            int last = merged != null ? merged[merged.length - 1] : c;
+            for (int i = 0, d = dag.outDegreeOf(c); i < d; i++) {
+                int successor = dag.successor(c, i);
+                last = Math.max(last, runs[successor] != null
+                        ? runs[successor][runs[successor].length - 1]
+                        : (firstWords[successor] + words[successor].length) * 64 - 1);
+            }
+            int first = c >>> 6;
+            long bitSetBytes = 8L * ((last >>> 6) - first + 1);
+            if (merged != null && 4L * merged.length <= bitSetBytes) {
+                runs[c] = merged;
+                bytes += 4L * merged.length;
+            } else {
+                firstWords[c] = first;
+                words[c] = unionOfSuccessors(dag, c, first, (last >>> 6) - first + 1, runs, firstWords, words);
+                bytes += bitSetBytes;
+            }
+            if (bytes > maxBytes)
+                return new IntReachabilityIndex(graph, components, null, null, null, 0);
+        }
+        return new IntReachabilityIndex(graph, components, runs, firstWords, words, bytes);
+    }
+
+    /**
+     * @return runs of c and of the sets of c's successors, merged, or null if any successor set is a bit set
+     */
+    private static int[] mergeRuns(IntGraph dag, int c, int[][] runs) {
+        int length = 2;
+        for (int i = 0, d = dag.outDegreeOf(c); i < d; i++) {
+            int[] successorRuns = runs[dag.successor(c, i)];
+            if (successorRuns == null)
+                return null;
+            length += successorRuns.length;
+        }
+        // runs packed as first id in the high half and last id in the low half, so they sort by first id
+        long[] packed = new long[length / 2];
+        int n = 0;
+        packed[n++] = (long) c << 32 | c;
+        for (int i = 0, d = dag.outDegreeOf(c); i < d; i++) {
+            int[] successorRuns = runs[dag.successor(c, i)];
+            for (int r = 0; r < successorRuns.length; r += 2)
+                packed[n++] = (long) successorRuns[r] << 32 | successorRuns[r + 1];
+        }
+        Arrays.sort(packed);
+        int[] merged = new int[2 * n];
+        int m = 0;
+        for (long run : packed) {
+            int first = (int) (run >>> 32), last = (int) run;
+            if (m > 0 && first <= merged[m - 1] + 1) {
+                merged[m - 1] = Math.max(merged[m - 1], last);
+            } else {
+                merged[m++] = first;
+                merged[m++] = last;
+            }
+        }
+        return Arrays.copyOf(merged, m);
+    }
+
+    private static long[] unionOfSuccessors(IntGraph dag, int c, int first, int length,
+                                            int[][] runs, int[] firstWords, long[][] words) {
+        long[] set = new long[length];
+        set[0] |= 1L << c;
+        for (int i = 0, d = dag.outDegreeOf(c); i < d; i++) {
+            int successor = dag.successor(c, i);
+            if (runs[successor] != null) {
+                int[] successorRuns = runs[successor];
+                for (int r = 0; r < successorRuns.length; r += 2)
+                    for (int id = successorRuns[r]; id <= successorRuns[r + 1]; id++)
+                        set[(id >>> 6) - first] |= 1L << id;
+            } else {
+                long[] successorSet = words[successor];
+                int shift = firstWords[successor] - first;
+                for (int w = 0; w < successorSet.length; w++)
+                    set[shift + w] |= successorSet[w];
+            }
+        }
+        return set;
+    }
+
+    public IntGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @return true iff reachability sets fit in the memory limit, otherwise queries traverse the graph
+     */
+    public boolean isIndexed() {
+        return runs != null;
+    }
+
+    /**
+     * @return memory taken by the reachability sets, in bytes
+     */
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Logarithmic in the number of runs of source's set if {@link #isIndexed()},
+     * otherwise a traversal which stops once target is found
+     *
+     * @return true iff there is a path from source to target, or source is target
+     * @throws IllegalArgumentException if source or target are not vertices of the graph
+     */
+    public boolean reaches(int source, int target) {
+        int from = components.componentOf(source);
+        int to = components.componentOf(target);
+        if (from == to)
+            return true;
+        if (to < from)
+            return false;
+        if (runs != null)
+            return componentReaches(from, to);
+        return search(source, target);
+    }
+
+    /**
+     * Takes time proportional to the number of vertices reached if {@link #isIndexed()},
+     * otherwise a traversal of everything reachable from source
+     *
+     * @return all vertices reachable from source, source included
+     * @throws IllegalArgumentException if source is not a vertex of the graph
+     */
+    public BitSet reachableFrom(int source) {
+        graph.checkVertex(source);
+        if (runs == null)
+            return GraphUtils.getAllReachableVerticesFromSource(graph, source);
+        int from = components.componentOf(source);
+        BitSet reachable = new BitSet(graph.vertexCount());
+        if (runs[from] != null) {
+            int[] fromRuns = runs[from];
+            for (int r = 0; r < fromRuns.length; r += 2)
+                for (int c = fromRuns[r]; c <= fromRuns[r + 1]; c++)
+                    components.forEachMember(c, reachable::set);
+            return reachable;
+        }
+        long[] set = words[from];
+        int base = firstWords[from] << 6;
+        for (int w = 0; w < set.length; w++) {
+            long bits = set[w];
+            while (bits != 0) {
+                components.forEachMember(base + (w << 6) + Long.numberOfTrailingZeros(bits), reachable::set);
+                bits &= bits - 1;
+            }
+        }
+        return reachable;
+    }
+
+    private boolean componentReaches(int from, int to) {
+        if (runs[from] != null) {
+            int[] fromRuns = runs[from];
+            // last run starting at or before to
+            int lo = 0, hi = fromRuns.length / 2 - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (fromRuns[2 * mid] <= to)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            return fromRuns[2 * lo] <= to && to <= fromRuns[2 * lo + 1];
+        }
+        int w = (to >>> 6) - firstWords[from];
+        long[] set = words[from];
+        return w < set.length && (set[w] & (1L << to)) != 0;
+    }
+
+    /**
+     * Depth first search from source, which stops once target is reached
+     */
+    private boolean search(int source, int target) {
+        BitSet reached = new BitSet(graph.vertexCount());
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = source;
+        reached.set(source);
+        while (top > 0) {
+            int v = stack[--top];
+            for (int i = 0, d = graph.outDegreeOf(v); i < d; i++) {
+                int u = graph.successor(v, i);
+                if (u == target)
+                    return true;
+                if (!reached.get(u)) {
+                    reached.set(u);
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = u;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of {@link GraphUtils#toposortOrCycle(IntGraph)}: either a full topological order of the graph,
+ * or the vertices that block any topological order.
+ */
+public final class IntToposortResult {
+
+    private final int[] order;
+    private final int[] cycleVertices;
+
+    IntToposortResult(int[] order, int[] cycleVertices) {
+        this.order = order;
+        this.cycleVertices = cycleVertices;
+    }
+
+    /**
+     * @return true iff the graph has a topological order
+     */
+    public boolean isSorted() {
+        return cycleVertices.length == 0;
+    }
+
+    /**
+     * @return all vertices in topological order if {@link #isSorted()},
+     *  otherwise the vertices that could be ordered before hitting a cycle.
+     *  The array is shared, callers must not modify it
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * @return ascending vertices lying on a cycle, or on a path between two cycles. Empty iff {@link #isSorted()}.
+     *  The array is shared, callers must not modify it
+     */
+    public int[] getCycleVertices() {
+        return cycleVertices;
+    }
+
+    @Override
+    public String toString() {
+        return isSorted() ? "IntToposortResult{order=" + Arrays.toString(order) + '}'
+                : "IntToposortResult{cycle=" + Arrays.toString(cycleVertices) + '}';
+    }
+}
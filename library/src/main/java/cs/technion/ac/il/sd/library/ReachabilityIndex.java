@@ -0,0 +1,68 @@
+package cs.technion.ac.il.sd.library;
+
+import org.jgrapht.DirectedGraph;
+
+import java.util.Set;
+
+/**
+ * Index answering reachability queries on a fixed {@link DirectedGraph}, a vertex reaching itself included.
+ * See {@link IntReachabilityIndex}.
+ */
+public final class ReachabilityIndex<V> {
+
+    private final IndexedGraph<V> indexed;
+    private final IntReachabilityIndex index;
+
+    private ReachabilityIndex(IndexedGraph<V> indexed, IntReachabilityIndex index) {
+        this.indexed = indexed;
+        this.index = index;
+    }
+
+    /**
+     * Same as {@link #of(DirectedGraph, long)} with {@link IntReachabilityIndex#DEFAULT_MAX_BYTES}
+     */
+    public static <V, E> ReachabilityIndex<V> of(DirectedGraph<V, E> graph) {
+        return of(graph, IntReachabilityIndex.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param graph    graph to index, later changes to it are not seen by the index
+     * @param maxBytes limit on the memory taken by the reachability sets, beyond which queries traverse the graph
+     * @throws IllegalArgumentException if graph is null or maxBytes is negative
+     */
+    public static <V, E> ReachabilityIndex<V> of(DirectedGraph<V, E> graph, long maxBytes) {
+        IndexedGraph<V> indexed = IndexedGraph.of(graph);
+        return new ReachabilityIndex<>(indexed, IntReachabilityIndex.of(indexed.graph(), maxBytes));
+    }
+
+    /**
+     * @see IntReachabilityIndex#isIndexed()
+     */
+    public boolean isIndexed() {
+        return index.isIndexed();
+    }
+
+    /**
+     * @return true iff there is a path from source to target, or source is target
+     * @throws IllegalArgumentException if source or target are not vertices of the graph
+     */
+    public boolean reaches(V source, V target) {
+        return index.reaches(indexed.idOf(source), indexed.idOf(target));
+    }
+
+    /**
+     * @return all vertices reachable from source, source included
+     * @throws IllegalArgumentException if source is not a vertex of the graph
+     */
+    public Set<V> reachableFrom(V source) {
+        return indexed.verticesOf(index.reachableFrom(indexed.idOf(source)));
+    }
+
+    public IntReachabilityIndex getIntIndex() {
+        return index;
+    }
+
+    public IndexedGraph<V> getIndexedGraph() {
+        return indexed;
+    }
+}
@@ -0,0 +1,47 @@
+package cs.technion.ac.il.sd.library;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outcome of {@link GraphUtils#toposortOrCycle}: either a full topological order of the graph,
+ * or the vertices that block any topological order.
+ */
+public final class ToposortResult<V> {
+
+    private final List<V> order;
+    private final Set<V> cycleVertices;
+
+    ToposortResult(List<V> order, Set<V> cycleVertices) {
+        this.order = Collections.unmodifiableList(order);
+        this.cycleVertices = Collections.unmodifiableSet(cycleVertices);
+    }
+
+    /**
+     * @return true iff the graph has a topological order
+     */
+    public boolean isSorted() {
+        return cycleVertices.isEmpty();
+    }
+
+    /**
+     * @return all vertices in topological order if {@link #isSorted()},
+     *  otherwise the vertices that could be ordered before hitting a cycle
+     */
+    public List<V> getOrder() {
+        return order;
+    }
+
+    /**
+     * @return vertices lying on a cycle, or on a path between two cycles. Empty iff {@link #isSorted()}
+     */
+    public Set<V> getCycleVertices() {
+        return cycleVertices;
+    }
+
+    @Override
+    public String toString() {
+        return isSorted() ? "ToposortResult{order=" + order + '}' : "ToposortResult{cycle=" + cycleVertices + '}';
+    }
+}
@@ -1,5 +1,7 @@
 import com.google.inject.matcher.Matchers;
+import cs.technion.ac.il.sd.library.Components;
 import cs.technion.ac.il.sd.library.GraphUtils;
+import cs.technion.ac.il.sd.library.ToposortResult;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.event.TraversalListener;
 import org.jgrapht.event.VertexTraversalEvent;
@@ -154,6 +156,51 @@ public class GraphUtilsTest {
         Assert.assertEquals(Optional.empty(), toposort(cyclicGraph));
     }
 
+    @Test
+    public void cyclicToposortOrCycleReturnsCycle() {
+        ToposortResult<Integer> result = GraphUtils.toposortOrCycle(cyclicGraph);
+        Assert.assertFalse(result.isSorted());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1, 3, 4)), result.getCycleVertices());
+    }
+
+    @Test
+    public void toposortOrCycleKeepsPathBetweenCycles() {
+        DirectedGraph<Integer, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        for (int i = 0; i < 8; i++) {
+            g.addVertex(i);
+        }
+        g.addEdge(0, 1); // 0 only leads into the cycles
+        g.addEdge(1, 2);
+        g.addEdge(2, 1);
+        g.addEdge(2, 3); // 3 lies between the two cycles
+        g.addEdge(3, 4);
+        g.addEdge(4, 5);
+        g.addEdge(5, 4);
+        g.addEdge(5, 6); // 6 and 7 only lead out of the cycles
+        g.addEdge(6, 7);
+        ToposortResult<Integer> result = GraphUtils.toposortOrCycle(g);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5)), result.getCycleVertices());
+        Assert.assertEquals(Arrays.asList(0), result.getOrder());
+    }
+
+    @Test
+    public void toposortOrCycleOnComplexGraphSorts() {
+        ToposortResult<Integer> result = GraphUtils.toposortOrCycle(complexGraph);
+        Assert.assertTrue(result.isSorted());
+        Assert.assertTrue(result.getCycleVertices().isEmpty());
+        Assert.assertTrue(toposortInvariant(complexGraph, result.getOrder().iterator()));
+    }
+
+    @Test
+    public void selfLoopIsACycle() {
+        DirectedGraph<Integer, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        g.addVertex(0);
+        g.addVertex(1);
+        g.addEdge(0, 1);
+        g.addEdge(1, 1);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1)), GraphUtils.toposortOrCycle(g).getCycleVertices());
+    }
+
     @Rule
     public Timeout globalTimeout = Timeout.seconds(10);
 
@@ -393,5 +440,132 @@ public class GraphUtilsTest {
     //TODO - add listener tests - how to use Mockito InOrder with listeners?
 
 
-}
 
+    @Test
+    public void componentsOfCyclicGraph() {
+        Components<Integer> components = GraphUtils.stronglyConnectedComponents(cyclicGraph);
+        Set<Integer> cycle = new HashSet<>(Arrays.asList(1, 3, 4));
+        Assert.assertEquals(Collections.singletonList(cycle), components.getNonTrivialComponents());
+        Assert.assertEquals(cycle, components.componentOf(4));
+        Assert.assertEquals(Collections.singleton(2), components.componentOf(2));
+        DirectedGraph<Set<Integer>, DefaultEdge> condensation = components.getCondensation();
+        Assert.assertEquals(2, condensation.vertexSet().size());
+        Assert.assertTrue(condensation.containsEdge(cycle, Collections.singleton(2)));
+        Assert.assertFalse(GraphUtils.hasCycle(condensation));
+    }
+
+    @Test
+    public void componentsAreInTopologicalOrder() {
+        List<Set<Integer>> components = GraphUtils.stronglyConnectedComponents(complexGraph).getComponents();
+        Assert.assertEquals(complexGraph.vertexSet().size(), components.size());
+        List<Integer> order = components.stream().map(c -> c.iterator().next()).collect(Collectors.toList());
+        Assert.assertTrue(toposortInvariant(complexGraph, order.iterator()));
+        Assert.assertTrue(GraphUtils.stronglyConnectedComponents(complexGraph).getNonTrivialComponents().isEmpty());
+    }
+
+    @Test
+    public void selfLoopIsCycle() {
+        DirectedGraph<String, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        g.addVertex("a");
+        g.addVertex("b");
+        g.addEdge("a", "a");
+        g.addEdge("a", "b");
+        Assert.assertTrue(GraphUtils.hasCycle(g));
+        Assert.assertEquals(Collections.singletonList(Collections.singleton("a")),
+                GraphUtils.stronglyConnectedComponents(g).getNonTrivialComponents());
+    }
+
+    @Test
+    public void transitiveReductionDropsRedundantEdges() {
+        DirectedGraph<String, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        Arrays.asList("f.cpp", "t", "main").forEach(g::addVertex);
+        g.addEdge("f.cpp", "t");
+        g.addEdge("t", "main");
+        DefaultEdge redundant = g.addEdge("f.cpp", "main");
+        DirectedGraph<String, DefaultEdge> reduced = GraphUtils.transitiveReduction(g);
+        Assert.assertEquals(g.vertexSet(), reduced.vertexSet());
+        Assert.assertEquals(2, reduced.edgeSet().size());
+        Assert.assertFalse(reduced.containsEdge(redundant));
+        Assert.assertEquals(3, g.edgeSet().size());
+    }
+
+    @Test
+    public void transitiveReductionOfComplexGraphKeepsReachability() {
+        DirectedGraph<Integer, DefaultEdge> reduced = GraphUtils.transitiveReduction(complexGraph);
+        for (Integer v : complexGraph.vertexSet())
+            Assert.assertEquals(GraphUtils.getAllReachableVerticesFromSource(complexGraph, v),
+                    GraphUtils.getAllReachableVerticesFromSource(reduced, v));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transitiveReductionOfCyclicGraphThrows() {
+        GraphUtils.transitiveReduction(cyclicGraph);
+    }
+
+    @Test
+    public void reachableFromSourcesIsUnion() {
+        Set<Integer> expected = new HashSet<>(GraphUtils.getAllReachableVerticesFromSource(complexGraph, 5));
+        expected.addAll(GraphUtils.getAllReachableVerticesFromSource(complexGraph, 3));
+        Assert.assertEquals(expected, GraphUtils.getAllReachableVerticesFromSources(complexGraph, Arrays.asList(5, 3)));
+        Assert.assertEquals(Collections.emptySet(), GraphUtils.getAllReachableVerticesFromSources(complexGraph, Collections.emptyList()));
+    }
+
+    @Test
+    public void firstReachingSourceIsClosest() {
+        Map<Integer, Integer> reachedBy = GraphUtils.getFirstReachingSources(complexGraph, Arrays.asList(7, 3));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(7, 3, 11, 8, 2, 9, 10)), reachedBy.keySet());
+        Assert.assertEquals(7, (int) reachedBy.get(7));
+        Assert.assertEquals(3, (int) reachedBy.get(3));
+        Assert.assertEquals(7, (int) reachedBy.get(11));
+        // 8 is as close to 7 as to 3, and 7 comes first
+        Assert.assertEquals(7, (int) reachedBy.get(8));
+        Assert.assertEquals(3, (int) reachedBy.get(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reachableFromAbsentSourceThrows() {
+        GraphUtils.getAllReachableVerticesFromSources(complexGraph, Arrays.asList(5, 42));
+    }
+
+    @Test
+    public void parallelBFSGroupsByDistance() {
+        List<List<Integer>> levels = GraphUtils.parallelBFSLevels(complexGraph, Arrays.asList(7, 3));
+        Assert.assertEquals(3, levels.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(7, 3)), new HashSet<>(levels.get(0)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(11, 8, 10)), new HashSet<>(levels.get(1)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(2, 9)), new HashSet<>(levels.get(2)));
+    }
+
+    @Test
+    public void topologicalLevelsFollowLongestChain() {
+        List<Set<Integer>> levels = GraphUtils.topologicalLevels(complexGraph)
+                .map(HashSet::new)
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(
+                new HashSet<>(Arrays.asList(5, 7, 3)),
+                new HashSet<>(Arrays.asList(11, 8)),
+                new HashSet<>(Arrays.asList(2, 9, 10))), levels);
+        Assert.assertEquals(0, GraphUtils.topologicalLevels(emptyGraph).count());
+    }
+
+    /**
+     * Tests that levels before a cycle are handed out before the cycle is found
+     */
+    @Test
+    public void topologicalLevelsAreLazy() {
+        Assert.assertEquals(Optional.of(Collections.singletonList(-1)),
+                GraphUtils.topologicalLevels(binaryTree).findFirst());
+        DirectedGraph<Integer, DefaultEdge> tailCycle = new DefaultDirectedGraph<>(DefaultEdge.class);
+        Arrays.asList(0, 1, 2).forEach(tailCycle::addVertex);
+        tailCycle.addEdge(0, 1);
+        tailCycle.addEdge(1, 2);
+        tailCycle.addEdge(2, 1);
+        Assert.assertEquals(Optional.of(Collections.singletonList(0)),
+                GraphUtils.topologicalLevels(tailCycle).findFirst());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void topologicalLevelsOfCyclicGraphThrow() {
+        GraphUtils.topologicalLevels(cyclicGraph).count();
+    }
+}
@@ -0,0 +1,481 @@
+import cs.technion.ac.il.sd.library.GraphUtils;
+import cs.technion.ac.il.sd.library.IndexedGraph;
+import cs.technion.ac.il.sd.library.IntComponents;
+import cs.technion.ac.il.sd.library.IntGraph;
+import cs.technion.ac.il.sd.library.IntToposortResult;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for {@link IntGraph}, {@link IndexedGraph} and the {@link GraphUtils} overloads on them
+ */
+public class IntGraphTest {
+
+    /**
+     * Same shape as GraphUtilsTest's complex graph: 5->11, 11->2, 11->9, 11->10, 7->11, 7->8, 8->9, 3->8, 3->10
+     */
+    private static IntGraph complexGraph() {
+        return IntGraph.builder(12)
+                .addEdge(5, 11).addEdge(11, 2).addEdge(11, 9).addEdge(11, 10)
+                .addEdge(7, 11).addEdge(7, 8).addEdge(8, 9).addEdge(3, 8).addEdge(3, 10)
+                .build();
+    }
+
+    private static IntGraph cyclicGraph() {
+        return IntGraph.builder(4)
+                .addEdge(0, 1).addEdge(0, 2).addEdge(2, 3).addEdge(3, 0)
+                .build();
+    }
+
+    private static boolean toposortInvariant(IntGraph graph, int[] order) {
+        if (order.length != graph.vertexCount())
+            return false;
+        int[] position = new int[graph.vertexCount()];
+        for (int i = 0; i < order.length; i++)
+            position[order[i]] = i;
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (int i = 0; i < graph.outDegreeOf(v); i++)
+                if (position[v] > position[graph.successor(v, i)])
+                    return false;
+        return true;
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet b = new BitSet();
+        Arrays.stream(ids).forEach(b::set);
+        return b;
+    }
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void degreesAndNeighboursAreCorrect() {
+        IntGraph g = complexGraph();
+        Assert.assertEquals(12, g.vertexCount());
+        Assert.assertEquals(9, g.edgeCount());
+        Assert.assertEquals(3, g.outDegreeOf(11));
+        Assert.assertEquals(2, g.inDegreeOf(11));
+        Assert.assertEquals(0, g.inDegreeOf(0));
+        Assert.assertEquals(Arrays.asList(2, 9, 10),
+                Arrays.asList(g.successor(11, 0), g.successor(11, 1), g.successor(11, 2)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(5, 7)),
+                new HashSet<>(Arrays.asList(g.predecessor(11, 0), g.predecessor(11, 1))));
+    }
+
+    @Test
+    public void complexGraphToposortPreservesInvariant() {
+        IntGraph g = complexGraph();
+        Assert.assertTrue(toposortInvariant(g, GraphUtils.toposort(g).get()));
+        Assert.assertFalse(GraphUtils.hasCycle(g));
+    }
+
+    @Test
+    public void cyclicToposortFails() {
+        Assert.assertTrue(GraphUtils.hasCycle(cyclicGraph()));
+        Assert.assertFalse(GraphUtils.toposort(cyclicGraph()).isPresent());
+    }
+
+    @Test
+    public void toposortOrCycleFindsOnlyBlockingVertices() {
+        // 4 hangs off the cycle 0 -> 2 -> 3 -> 0, 1 is reached from it
+        IntGraph g = IntGraph.builder(5)
+                .addEdge(0, 1).addEdge(0, 2).addEdge(2, 3).addEdge(3, 0).addEdge(4, 0)
+                .build();
+        IntToposortResult result = GraphUtils.toposortOrCycle(g);
+        Assert.assertFalse(result.isSorted());
+        Assert.assertArrayEquals(new int[]{0, 2, 3}, result.getCycleVertices());
+        Assert.assertArrayEquals(new int[]{4}, result.getOrder());
+        IntGraph acyclic = complexGraph();
+        Assert.assertTrue(toposortInvariant(acyclic, GraphUtils.toposortOrCycle(acyclic).getOrder()));
+    }
+
+    @Test
+    public void inducedToposortIgnoresOutsideEdges() {
+        // 0 -> 1 -> 2 -> 0 is a cycle, cut by leaving 0 out
+        IntGraph g = IntGraph.builder(4)
+                .addEdge(0, 1).addEdge(1, 2).addEdge(2, 0).addEdge(2, 3)
+                .build();
+        Assert.assertFalse(GraphUtils.toposortOrCycle(g, bits(0, 1, 2, 3)).isSorted());
+        IntToposortResult result = GraphUtils.toposortOrCycle(g, bits(1, 2, 3));
+        Assert.assertTrue(result.isSorted());
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, result.getOrder());
+    }
+
+    @Test
+    public void inducedToposortOfAbsentVertexThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        GraphUtils.toposortOrCycle(cyclicGraph(), bits(4));
+    }
+
+    @Test
+    public void reversedGraphSwapsDirections() {
+        IntGraph g = complexGraph().reversed();
+        Assert.assertEquals(9, g.edgeCount());
+        Assert.assertEquals(3, g.inDegreeOf(11));
+        Assert.assertEquals(2, g.outDegreeOf(11));
+        Assert.assertEquals(bits(9, 11, 8, 5, 7, 3), GraphUtils.getAllReachableVerticesFromSource(g, 9));
+    }
+
+    @Test
+    public void emptyGraphReturnsEmptySort() {
+        Assert.assertEquals(0, GraphUtils.toposort(IntGraph.builder(0).build()).get().length);
+    }
+
+    @Test
+    public void nullGraphThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        GraphUtils.toposort((IntGraph) null);
+    }
+
+    @Test
+    public void sourcesAndLeavesAreValid() {
+        IntGraph g = complexGraph();
+        // 0, 1, 4 and 6 are isolated, so they are both sources and leaves
+        Assert.assertArrayEquals(new int[]{0, 1, 3, 4, 5, 6, 7}, GraphUtils.getSourcesVertices(g));
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 4, 6, 9, 10}, GraphUtils.getLeafVertices(g));
+    }
+
+    @Test
+    public void reachableVerticesComplexGraphCorrect() {
+        IntGraph g = complexGraph();
+        Assert.assertEquals(bits(5, 2, 9, 10, 11), GraphUtils.getAllReachableVerticesFromSource(g, 5));
+        Assert.assertEquals(bits(7, 8, 2, 9, 10, 11), GraphUtils.getAllReachableVerticesFromSource(g, 7));
+        Assert.assertEquals(bits(9), GraphUtils.getAllReachableVerticesFromSource(g, 9));
+        Assert.assertEquals(bits(0, 1, 2, 3), GraphUtils.getAllReachableVerticesFromSource(cyclicGraph(), 2));
+    }
+
+    @Test
+    public void reachableFromAbsentVertexThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        GraphUtils.getAllReachableVerticesFromSource(cyclicGraph(), 4);
+    }
+
+    @Test
+    public void edgeOutOfRangeThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        IntGraph.builder(2).addEdge(0, 2);
+    }
+
+    @Test
+    public void adapterKeepsStructure() {
+        DirectedGraph<String, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        Arrays.asList("a", "b", "c", "d").forEach(g::addVertex);
+        g.addEdge("a", "b");
+        g.addEdge("b", "c");
+        g.addEdge("a", "c");
+        IndexedGraph<String> indexed = IndexedGraph.of(g);
+        IntGraph ig = indexed.graph();
+        Assert.assertEquals(4, ig.vertexCount());
+        Assert.assertEquals(3, ig.edgeCount());
+        Assert.assertEquals(2, ig.outDegreeOf(indexed.idOf("a")));
+        Assert.assertEquals("c", indexed.vertexOf(indexed.idOf("c")));
+
+        Optional<int[]> order = GraphUtils.toposort(ig);
+        List<String> sorted = indexed.verticesOf(order.get());
+        Assert.assertTrue(sorted.indexOf("a") < sorted.indexOf("b"));
+        Assert.assertTrue(sorted.indexOf("b") < sorted.indexOf("c"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("b", "c")),
+                indexed.verticesOf(GraphUtils.getAllReachableVerticesFromSource(ig, indexed.idOf("b"))));
+    }
+
+    @Test
+    public void longChainDoesNotOverflowStack() {
+        int n = 1_000_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v - 1, v);
+        IntGraph chain = builder.build();
+        Assert.assertEquals(n, GraphUtils.getAllReachableVerticesFromSource(chain, 0).cardinality());
+        Assert.assertTrue(toposortInvariant(chain, GraphUtils.toposort(chain).get()));
+    }
+
+    /**
+     * @return true iff every edge goes from a component to itself or to a larger component
+     */
+    private static boolean componentsAreTopological(IntGraph graph, IntComponents components) {
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (int i = 0; i < graph.outDegreeOf(v); i++)
+                if (components.componentOf(v) > components.componentOf(graph.successor(v, i)))
+                    return false;
+        return true;
+    }
+
+    @Test
+    public void componentsOfCyclicGraph() {
+        // 0 -> 1 -> 2 -> 0 is a cycle, 3 hangs off it, 4 has an edge to itself, 5 is alone
+        IntGraph g = IntGraph.builder(6)
+                .addEdge(0, 1).addEdge(1, 2).addEdge(2, 0).addEdge(2, 3).addEdge(4, 4).addEdge(4, 0)
+                .build();
+        IntComponents components = GraphUtils.stronglyConnectedComponents(g);
+        Assert.assertEquals(4, components.componentCount());
+        int cycle = components.componentOf(0);
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, components.membersOf(cycle));
+        Assert.assertTrue(components.isNonTrivial(cycle));
+        Assert.assertTrue(components.isNonTrivial(components.componentOf(4)));
+        Assert.assertFalse(components.isNonTrivial(components.componentOf(3)));
+        Assert.assertFalse(components.isNonTrivial(components.componentOf(5)));
+        Assert.assertEquals(2, components.nonTrivialComponents().length);
+        Assert.assertTrue(componentsAreTopological(g, components));
+    }
+
+    @Test
+    public void condensationIsAcyclicWithoutParallelEdges() {
+        IntGraph g = IntGraph.builder(6)
+                .addEdge(0, 1).addEdge(1, 0).addEdge(0, 2).addEdge(1, 2).addEdge(2, 3).addEdge(3, 2)
+                .addEdge(3, 4).addEdge(5, 4)
+                .build();
+        IntComponents components = GraphUtils.stronglyConnectedComponents(g);
+        IntGraph dag = components.condensation();
+        Assert.assertEquals(4, dag.vertexCount());
+        Assert.assertEquals(3, dag.edgeCount());
+        Assert.assertFalse(GraphUtils.hasCycle(dag));
+        Assert.assertEquals(1, dag.outDegreeOf(components.componentOf(0)));
+        Assert.assertEquals(components.componentOf(2), dag.successor(components.componentOf(0), 0));
+    }
+
+    @Test
+    public void acyclicGraphHasOnlyTrivialComponents() {
+        IntGraph g = complexGraph();
+        IntComponents components = GraphUtils.stronglyConnectedComponents(g);
+        Assert.assertEquals(g.vertexCount(), components.componentCount());
+        Assert.assertEquals(0, components.nonTrivialComponents().length);
+        Assert.assertEquals(g.edgeCount(), components.condensation().edgeCount());
+        Assert.assertTrue(componentsAreTopological(g, components));
+    }
+
+    @Test
+    public void componentsOfLongChainAndRing() {
+        int n = 1_000_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v - 1, v);
+        IntGraph chain = builder.build();
+        IntComponents chainComponents = GraphUtils.stronglyConnectedComponents(chain);
+        Assert.assertEquals(n, chainComponents.componentCount());
+        Assert.assertEquals(0, chainComponents.nonTrivialComponents().length);
+        Assert.assertTrue(componentsAreTopological(chain, chainComponents));
+
+        IntGraph ring = builder.addEdge(n - 1, 0).build();
+        IntComponents ringComponents = GraphUtils.stronglyConnectedComponents(ring);
+        Assert.assertEquals(1, ringComponents.componentCount());
+        Assert.assertEquals(n, ringComponents.sizeOf(0));
+        Assert.assertEquals(0, ringComponents.condensation().edgeCount());
+    }
+
+    @Test
+    public void reductionDropsShortcutsAndParallelEdges() {
+        // 0 -> 1 -> 2 -> 3, with shortcuts 0 -> 2, 0 -> 3, 1 -> 3 and a parallel 2 -> 3
+        IntGraph g = IntGraph.builder(4)
+                .addEdge(0, 3).addEdge(0, 1).addEdge(0, 2).addEdge(1, 3).addEdge(1, 2)
+                .addEdge(2, 3).addEdge(2, 3)
+                .build();
+        IntGraph reduced = GraphUtils.transitiveReduction(g);
+        Assert.assertEquals(3, reduced.edgeCount());
+        Assert.assertEquals(1, reduced.successor(0, 0));
+        Assert.assertEquals(2, reduced.successor(1, 0));
+        Assert.assertEquals(3, reduced.successor(2, 0));
+    }
+
+    @Test
+    public void reductionKeepsReachability() {
+        java.util.Random random = new java.util.Random(11);
+        int n = 300;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            for (int k = 0; k < 4; k++)
+                builder.addEdge(random.nextInt(v), v);
+        IntGraph g = builder.build();
+        IntGraph reduced = GraphUtils.transitiveReduction(g);
+        Assert.assertTrue(reduced.edgeCount() < g.edgeCount());
+        for (int v = 0; v < n; v++)
+            Assert.assertEquals(GraphUtils.getAllReachableVerticesFromSource(g, v),
+                    GraphUtils.getAllReachableVerticesFromSource(reduced, v));
+        // the reduction is minimal: dropping any remaining edge loses reachability
+        Assert.assertEquals(reduced.edgeCount(), GraphUtils.transitiveReduction(reduced).edgeCount());
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < reduced.outDegreeOf(v); i++) {
+                int u = reduced.successor(v, i);
+                for (int j = 0; j < reduced.outDegreeOf(v); j++)
+                    if (j != i)
+                        Assert.assertFalse(GraphUtils.getAllReachableVerticesFromSource(reduced, reduced.successor(v, j)).get(u));
+            }
+        }
+    }
+
+    @Test
+    public void reductionWithGivenOrderMatchesOwnSort() {
+        IntGraph g = IntGraph.builder(4)
+                .addEdge(0, 3).addEdge(0, 1).addEdge(0, 2).addEdge(1, 3).addEdge(1, 2)
+                .addEdge(2, 3).addEdge(2, 3)
+                .build();
+        IntGraph reduced = GraphUtils.transitiveReduction(g, GraphUtils.toposortOrCycle(g).getOrder());
+        Assert.assertEquals(3, reduced.edgeCount());
+        Assert.assertEquals(bits(0, 1, 2, 3), GraphUtils.getAllReachableVerticesFromSource(reduced, 0));
+    }
+
+    @Test
+    public void reductionWithPartialOrderThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        GraphUtils.transitiveReduction(cyclicGraph(), GraphUtils.toposortOrCycle(cyclicGraph()).getOrder());
+    }
+
+    @Test
+    public void reductionOfCyclicGraphThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        GraphUtils.transitiveReduction(cyclicGraph());
+    }
+
+    @Test
+    public void reductionOfLongChainKeepsIt() {
+        int n = 1_000_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v - 1, v);
+        Assert.assertEquals(n - 1, GraphUtils.transitiveReduction(builder.build()).edgeCount());
+    }
+
+    @Test
+    public void reachableFromSourcesIsUnion() {
+        IntGraph g = complexGraph();
+        BitSet expected = GraphUtils.getAllReachableVerticesFromSource(g, 5);
+        expected.or(GraphUtils.getAllReachableVerticesFromSource(g, 3));
+        Assert.assertEquals(expected, GraphUtils.getAllReachableVerticesFromSources(g, 5, 3, 5));
+        Assert.assertTrue(GraphUtils.getAllReachableVerticesFromSources(g).isEmpty());
+    }
+
+    @Test
+    public void firstReachingSourceIsClosest() {
+        int[] reachedBy = GraphUtils.getFirstReachingSources(complexGraph(), 7, 3);
+        Assert.assertEquals(7, reachedBy[11]);
+        Assert.assertEquals(7, reachedBy[8]);
+        Assert.assertEquals(3, reachedBy[10]);
+        Assert.assertEquals(3, reachedBy[3]);
+        Assert.assertEquals(-1, reachedBy[5]);
+    }
+
+    @Test
+    public void manySourcesOnLongChainVisitOnce() {
+        int n = 1_000_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v - 1, v);
+        IntGraph chain = builder.build();
+        int[] sources = new int[10_000];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = i * 100;
+        Assert.assertEquals(n, GraphUtils.getAllReachableVerticesFromSources(chain, sources).cardinality());
+        int[] reachedBy = GraphUtils.getFirstReachingSources(chain, sources);
+        Assert.assertEquals(9900, reachedBy[9999]);
+        Assert.assertEquals(sources[sources.length - 1], reachedBy[n - 1]);
+    }
+
+    private static int[] sorted(int[] level) {
+        int[] copy = level.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void parallelBFSGroupsByDistance() {
+        List<int[]> levels = GraphUtils.parallelBFSLevels(complexGraph(), 7, 3);
+        Assert.assertEquals(3, levels.size());
+        Assert.assertArrayEquals(new int[]{3, 7}, sorted(levels.get(0)));
+        Assert.assertArrayEquals(new int[]{8, 10, 11}, sorted(levels.get(1)));
+        Assert.assertArrayEquals(new int[]{2, 9}, sorted(levels.get(2)));
+        Assert.assertTrue(GraphUtils.parallelBFSLevels(complexGraph()).isEmpty());
+    }
+
+    @Test
+    public void parallelBFSOnCyclicGraphVisitsEachVertexOnce() {
+        List<int[]> levels = GraphUtils.parallelBFSLevels(cyclicGraph(), 0, 0);
+        Assert.assertEquals(3, levels.size());
+        Assert.assertArrayEquals(new int[]{0}, levels.get(0));
+        Assert.assertArrayEquals(new int[]{1, 2}, sorted(levels.get(1)));
+        Assert.assertArrayEquals(new int[]{3}, levels.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelBFSFromAbsentSourceThrows() {
+        GraphUtils.parallelBFSLevels(complexGraph(), 12);
+    }
+
+    /**
+     * Tests that levels wide enough to be split between tasks match the distances of a sequential search
+     */
+    @Test
+    public void parallelBFSOnWideRandomGraphMatchesSequentialDistances() {
+        int n = 200_000;
+        Random random = new Random(42);
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int e = 0; e < 4 * n; e++)
+            builder.addEdge(random.nextInt(n), random.nextInt(n));
+        IntGraph g = builder.build();
+        int[] distance = new int[n];
+        Arrays.fill(distance, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distance[0] = 0;
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            g.forEachSuccessor(v, u -> {
+                if (distance[u] < 0) {
+                    distance[u] = distance[v] + 1;
+                    queue.add(u);
+                }
+            });
+        }
+        List<int[]> levels = GraphUtils.parallelBFSLevels(new ForkJoinPool(4), g, 0);
+        BitSet seen = new BitSet(n);
+        for (int d = 0; d < levels.size(); d++)
+            for (int v : levels.get(d)) {
+                Assert.assertEquals(d, distance[v]);
+                Assert.assertFalse(seen.get(v));
+                seen.set(v);
+            }
+        Assert.assertEquals(Arrays.stream(distance).filter(d -> d >= 0).count(), seen.cardinality());
+    }
+
+    @Test
+    public void topologicalLevelsFollowLongestChain() {
+        int[][] levels = GraphUtils.topologicalLevels(complexGraph());
+        Assert.assertEquals(3, levels.length);
+        Assert.assertArrayEquals(new int[]{0, 1, 3, 4, 5, 6, 7}, sorted(levels[0]));
+        Assert.assertArrayEquals(new int[]{8, 11}, sorted(levels[1]));
+        Assert.assertArrayEquals(new int[]{2, 9, 10}, sorted(levels[2]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void topologicalLevelsOfCyclicGraphThrow() {
+        GraphUtils.topologicalLevels(cyclicGraph());
+    }
+
+    @Test
+    public void topologicalLevelsOfLongChainAreSingletons() {
+        int n = 1_000_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v - 1, v);
+        int[][] levels = GraphUtils.topologicalLevels(builder.build());
+        Assert.assertEquals(n, levels.length);
+        Assert.assertArrayEquals(new int[]{n - 1}, levels[n - 1]);
+    }
+}
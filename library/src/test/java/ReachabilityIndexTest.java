@@ -0,0 +1,121 @@
+import cs.technion.ac.il.sd.library.GraphUtils;
+import cs.technion.ac.il.sd.library.IntGraph;
+import cs.technion.ac.il.sd.library.IntReachabilityIndex;
+import cs.technion.ac.il.sd.library.ReachabilityIndex;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Tests for {@link IntReachabilityIndex} and {@link ReachabilityIndex}
+ */
+public class ReachabilityIndexTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /**
+     * Random graph on n vertices, mostly going forward, with a few backward edges making cycles
+     */
+    private static IntGraph randomGraph(int n, long seed) {
+        Random random = new Random(seed);
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            for (int k = random.nextInt(3); k >= 0; k--)
+                builder.addEdge(random.nextInt(v), v);
+        for (int k = 0; k < n / 50; k++)
+            builder.addEdge(random.nextInt(n), random.nextInt(n));
+        return builder.build();
+    }
+
+    private static void assertMatchesTraversal(IntGraph graph, IntReachabilityIndex index) {
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            java.util.BitSet expected = GraphUtils.getAllReachableVerticesFromSource(graph, u);
+            Assert.assertEquals(expected, index.reachableFrom(u));
+            for (int v = 0; v < graph.vertexCount(); v++)
+                Assert.assertEquals(u + " -> " + v, expected.get(v), index.reaches(u, v));
+        }
+    }
+
+    @Test
+    public void indexMatchesTraversal() {
+        IntGraph graph = randomGraph(300, 1);
+        IntReachabilityIndex index = IntReachabilityIndex.of(graph);
+        Assert.assertTrue(index.isIndexed());
+        Assert.assertTrue(index.sizeInBytes() > 0);
+        assertMatchesTraversal(graph, index);
+    }
+
+    @Test
+    public void fallbackMatchesTraversal() {
+        IntGraph graph = randomGraph(300, 2);
+        IntReachabilityIndex index = IntReachabilityIndex.of(graph, 64);
+        Assert.assertFalse(index.isIndexed());
+        Assert.assertEquals(0, index.sizeInBytes());
+        assertMatchesTraversal(graph, index);
+    }
+
+    @Test
+    public void cycleMembersReachEachOther() {
+        IntGraph graph = IntGraph.builder(4).addEdge(0, 1).addEdge(1, 2).addEdge(2, 0).addEdge(2, 3).build();
+        IntReachabilityIndex index = IntReachabilityIndex.of(graph);
+        Assert.assertTrue(index.reaches(2, 1));
+        Assert.assertTrue(index.reaches(1, 3));
+        Assert.assertFalse(index.reaches(3, 0));
+        Assert.assertTrue(index.reaches(3, 3));
+    }
+
+    @Test
+    public void setsOfLongChainAreCompressed() {
+        int n = 100_000;
+        IntGraph.Builder builder = IntGraph.builder(n);
+        for (int v = 1; v < n; v++)
+            builder.addEdge(v, v - 1);
+        IntReachabilityIndex index = IntReachabilityIndex.of(builder.build());
+        Assert.assertTrue(index.isIndexed());
+        Assert.assertTrue(index.reaches(n - 1, 0));
+        Assert.assertFalse(index.reaches(0, 1));
+        Assert.assertEquals(n, index.reachableFrom(n - 1).cardinality());
+        Assert.assertEquals(1, index.reachableFrom(0).cardinality());
+    }
+
+    @Test
+    public void negativeLimitThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        IntReachabilityIndex.of(randomGraph(10, 3), -1);
+    }
+
+    @Test
+    public void absentVertexThrows() {
+        thrown.expect(IllegalArgumentException.class);
+        IntReachabilityIndex.of(randomGraph(10, 3)).reaches(0, 10);
+    }
+
+    @Test
+    public void indexOfDirectedGraph() {
+        DirectedGraph<String, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        Arrays.asList("f.asm", "f.go", "f.cpp", "t", "main", "f.java").forEach(g::addVertex);
+        g.addEdge("f.asm", "f.go");
+        g.addEdge("f.go", "f.cpp");
+        g.addEdge("f.cpp", "t");
+        g.addEdge("t", "main");
+        g.addEdge("f.java", "main");
+        ReachabilityIndex<String> index = ReachabilityIndex.of(g);
+        Assert.assertTrue(index.reaches("f.asm", "main"));
+        Assert.assertFalse(index.reaches("f.java", "t"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("f.cpp", "t", "main")), index.reachableFrom("f.cpp"));
+        Assert.assertEquals(GraphUtils.getAllReachableVerticesFromSource(g, "f.go"), index.reachableFrom("f.go"));
+    }
+}
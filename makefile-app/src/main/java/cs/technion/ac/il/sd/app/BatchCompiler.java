@@ -0,0 +1,17 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.List;
+
+/**
+ * Compiles many targets with a single call.
+ * Implementations may hand the whole batch to a bulk compiler, or fan it out to single compilations.
+ */
+public interface BatchCompiler {
+
+    /**
+     * Compiles every target of batch. Targets of a batch never depend on each other.
+     *
+     * @param names names of targets, in the order the build prefers them compiled
+     */
+    void compile(List<String> names);
+}
@@ -0,0 +1,68 @@
+package cs.technion.ac.il.sd.app;
+
+import cs.technion.ac.il.sd.library.IntGraph;
+
+import java.io.File;
+import java.util.function.IntFunction;
+
+/**
+ * What a build runs over: the dependencies graph of a build file on compilable ids, with edges going
+ * from dependency to dependant, and the ids to build in topological order, which must include every dependency
+ * of each of them. The build file names the graph, compile durations are recorded under it.
+ * It is only read, so one graph may back many builds at once.
+ */
+public final class BuildGraph {
+
+    private final String buildFile;
+    private final IntGraph dependencies;
+    private final IntFunction<Compilable> compilables;
+    private final int[] ids;
+
+    /**
+     * @param buildFile    the build file the graph was read from
+     * @param dependencies acyclic dependencies graph, edges go from dependency to dependant
+     * @param compilables  the compilable of every vertex of dependencies
+     * @param ids          vertices to build, in topological order. The array is kept, callers must not modify it
+     * @throws IllegalArgumentException if an id is not a vertex of dependencies
+     */
+    public BuildGraph(File buildFile, IntGraph dependencies, IntFunction<Compilable> compilables, int[] ids) {
+        for (int id : ids)
+            dependencies.checkVertex(id);
+        this.buildFile = buildFile.toPath().toAbsolutePath().normalize().toString();
+        this.dependencies = dependencies;
+        this.compilables = compilables;
+        this.ids = ids;
+    }
+
+    /**
+     * @return absolute path of the build file the graph was read from
+     */
+    public String buildFile() {
+        return buildFile;
+    }
+
+    public IntGraph dependencies() {
+        return dependencies;
+    }
+
+    public Compilable compilableOf(int id) {
+        return compilables.apply(id);
+    }
+
+    /**
+     * @return ids to build, in topological order. The array is shared, callers must not modify it
+     */
+    public int[] ids() {
+        return ids;
+    }
+
+    /**
+     * @return number of dependency edges between the ids to build
+     */
+    public int edgeCount() {
+        int edges = 0;
+        for (int id : ids)
+            edges += dependencies.inDegreeOf(id);
+        return edges;
+    }
+}
@@ -0,0 +1,94 @@
+package cs.technion.ac.il.sd.app;
+
+/**
+ * Receives measurements taken while processing build files.
+ * Implementations are called concurrently from the build and probe workers.
+ */
+public interface BuildMetrics {
+
+    /**
+     * Stages of processing a single build file
+     */
+    enum Phase {
+        /** Looking up the graph cache and parsing the build file, or loading its snapshot */
+        PARSE,
+        /** Creating the dependencies graph, and narrowing it down to the goals */
+        GRAPH,
+        /** Looking for a dependency cycle, and sorting the graph topologically */
+        CYCLE_CHECK,
+        /** Asking which files were modified, when done up front */
+        PROBE,
+        /** Scheduling and running compilations */
+        BUILD,
+        /** The whole of processing a build file */
+        TOTAL
+    }
+
+    enum Counter {
+        /** Compilables in the graph being built */
+        VERTICES,
+        /** Dependencies in the graph being built */
+        EDGES,
+        /** Compilables found to need compilation, as modified or depending on a compiled one */
+        DIRTY,
+        /** Completed compilations of single compilables */
+        COMPILES,
+        /** Completed calls to {@link BatchCompiler#compile}, each compiling one or more compilables */
+        BATCHES,
+        /** Compilables which were reached but needed no compilation */
+        SKIPPED
+    }
+
+    /**
+     * Metrics which discard every measurement
+     */
+    BuildMetrics NONE = new BuildMetrics() {
+        @Override
+        public void phase(Phase phase, long nanos) {
+        }
+
+        @Override
+        public void compileLatency(long nanos) {
+        }
+
+        @Override
+        public void batchLatency(long nanos) {
+        }
+
+        @Override
+        public void wasModifiedLatency(long nanos) {
+        }
+
+        @Override
+        public void count(Counter counter, long delta) {
+        }
+
+        @Override
+        public void readyQueueSize(int size) {
+        }
+    };
+
+    void phase(Phase phase, long nanos);
+
+    /**
+     * Records how long compiling a single compilable took, on its own
+     */
+    void compileLatency(long nanos);
+
+    /**
+     * Records how long a single call to {@link BatchCompiler#compile} with more than one compilable took
+     */
+    void batchLatency(long nanos);
+
+    /**
+     * Records how long a single call to wasModified took
+     */
+    void wasModifiedLatency(long nanos);
+
+    void count(Counter counter, long delta);
+
+    /**
+     * Records the number of compilables waiting for a free worker
+     */
+    void readyQueueSize(int size);
+}
@@ -0,0 +1,39 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link JmxBuildMetrics}.
+ * All durations are in nanoseconds and accumulate since creation or the last reset.
+ */
+public interface BuildMetricsMXBean {
+
+    /**
+     * @return total time spent in every {@link BuildMetrics.Phase}, by phase name
+     */
+    Map<String, Long> getPhaseNanos();
+
+    /**
+     * @return value of every {@link BuildMetrics.Counter}, by counter name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return count, mean, percentiles and max of latencies of compiling a single compilable on its own
+     */
+    Map<String, Long> getCompileLatency();
+
+    /**
+     * @return count, mean, percentiles and max of latencies of batches of more than one compilable
+     */
+    Map<String, Long> getBatchLatency();
+
+    /**
+     * @return count, mean, percentiles and max of wasModified call latencies
+     */
+    Map<String, Long> getWasModifiedLatency();
+
+    long getPeakReadyQueueSize();
+
+    void reset();
+}
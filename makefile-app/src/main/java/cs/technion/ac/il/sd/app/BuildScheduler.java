@@ -0,0 +1,336 @@
+package cs.technion.ac.il.sd.app;
+
+import cs.technion.ac.il.sd.library.IntGraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Dependency aware build scheduler.
+ * A compilable is dispatched to the worker pool as soon as all of its dependencies are done,
+ * so independent compilables are compiled concurrently while dependency order is kept.
+ * When more compilables are ready than there are workers, the ones heading the longest remaining path
+ * to the end of the build go first, where path lengths are summed from the recorded compile durations.
+ * Before any duration is recorded, ready compilables are started in the order they became ready.
+ * Ready compilables are handed to the {@link BatchCompiler} in batches of up to a maximal size.
+ * A batch smaller than that waits for more compilables to become ready only while something is still running
+ * which may make them ready, and no longer than the batch deadline.
+ * The graph is only read, so one graph may back many builds at once:
+ * the state of every build is kept in arrays indexed by compilable id, confined to that build.
+ */
+public class BuildScheduler {
+
+    private final BatchCompiler compiler;
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final ExecutorService probers;
+    private final CompileDurations durations;
+    private final BuildMetrics metrics;
+    private final int maxBatchSize;
+    private final long batchDeadlineNanos;
+
+    /**
+     * @param parallelism        number of batches handed to workers at once, the rest wait in priority order
+     * @param durations          durations to prioritize by, kept per build file, every duration of a single
+     *                           compilation is recorded into it
+     * @param maxBatchSize       largest number of compilables handed to compiler at once
+     * @param batchDeadlineNanos longest time a ready compilable waits for its batch to fill up
+     */
+    public BuildScheduler(BatchCompiler compiler, ExecutorService workers, int parallelism,
+                          ExecutorService probers, CompileDurations durations, BuildMetrics metrics,
+                          int maxBatchSize, long batchDeadlineNanos) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive, got " + parallelism);
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("batch size must be positive, got " + maxBatchSize);
+        if (batchDeadlineNanos < 0)
+            throw new IllegalArgumentException("batch deadline must not be negative, got " + batchDeadlineNanos);
+        this.compiler = compiler;
+        this.workers = workers;
+        this.parallelism = parallelism;
+        this.probers = probers;
+        this.durations = durations;
+        this.metrics = metrics;
+        this.maxBatchSize = maxBatchSize;
+        this.batchDeadlineNanos = batchDeadlineNanos;
+    }
+
+    /**
+     * Compiles every dirty compilable of graph, each one only after all of its dependencies are done.
+     * A compilable is dirty if it was modified itself or if any of its dependencies was compiled,
+     * which is decided in the same single pass that schedules the graph.
+     * Scheduling decisions are made on the calling thread only, workers just run {@link BatchCompiler#compile}.
+     *
+     * @param modified ids of the modified files of graph
+     */
+    public void build(BuildGraph graph, BitSet modified) {
+        try {
+            new Run(graph, modified, Optional.empty()).build();
+        } finally {
+            durations.flush();
+        }
+    }
+
+    /**
+     * Like {@link #build(BuildGraph, BitSet)}, but modified files are not known up front.
+     * A file is asked about through lazyProbe only once it is reached and none of its dependencies was compiled,
+     * since otherwise it is dirty anyway. Probes run on the probe pool, alongside running compilations.
+     */
+    public void build(BuildGraph graph, ModificationOracle lazyProbe) {
+        try {
+            new Run(graph, new BitSet(), Optional.of(lazyProbe)).build();
+        } finally {
+            durations.flush();
+        }
+    }
+
+    /**
+     * Length of the longest path from every compilable to the end of the build, itself included,
+     * found in one pass over graph's topological order.
+     * A compilable with no recorded duration is assumed to take as long as the average recorded one.
+     *
+     * @return the remaining path of every compilable, by id, or null if no duration is recorded
+     */
+    private long[] remainingPaths(BuildGraph graph) {
+        if (durations.isEmpty(graph.buildFile()))
+            return null;
+        IntGraph dependencies = graph.dependencies();
+        long[] costs = new long[dependencies.vertexCount()];
+        long known = 0, total = 0;
+        for (int id : graph.ids()) {
+            OptionalLong d = durations.durationOf(graph.buildFile(), graph.compilableOf(id).getName());
+            if (d.isPresent()) {
+                costs[id] = Math.max(1, d.getAsLong());
+                total += costs[id];
+                known++;
+            }
+        }
+        long unknownCost = known == 0 ? 1 : Math.max(1, total / known);
+        int[] order = graph.ids();
+        long[] remaining = new long[dependencies.vertexCount()];
+        for (int i = order.length - 1; i >= 0; i--) {
+            int id = order[i];
+            long longestDependant = 0;
+            for (int j = 0, d = dependencies.outDegreeOf(id); j < d; j++)
+                longestDependant = Math.max(longestDependant, remaining[dependencies.successor(id, j)]);
+            remaining[id] = (costs[id] > 0 ? costs[id] : unknownCost) + longestDependant;
+        }
+        return remaining;
+    }
+
+    /**
+     * Outcome of a task handed to a pool
+     */
+    private static final class Step {
+        private final List<Compilable> compilables;
+        private final boolean isProbe;
+        private final boolean modified;
+        private final long nanos;
+
+        private Step(List<Compilable> compilables, boolean isProbe, boolean modified, long nanos) {
+            this.compilables = compilables;
+            this.isProbe = isProbe;
+            this.modified = modified;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * A compilable waiting for a free worker
+     */
+    private static final class Queued implements Comparable<Queued> {
+        private final Compilable compilable;
+        private final long remainingPath;
+        private final long sequence;
+
+        private Queued(Compilable compilable, long remainingPath, long sequence) {
+            this.compilable = compilable;
+            this.remainingPath = remainingPath;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Longest remaining path first, ties broken by arrival so equal paths keep topological order
+         */
+        @Override
+        public int compareTo(Queued o) {
+            int byPath = Long.compare(o.remainingPath, remainingPath);
+            return byPath != 0 ? byPath : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * State of a single build, confined to the calling thread
+     */
+    private final class Run {
+        private final BuildGraph graph;
+        private final IntGraph dependencies;
+        private final BitSet members;
+        private final BitSet modified;
+        private final Optional<ModificationOracle> lazyProbe;
+        private final int[] pendingDeps;
+        private final BitSet rebuiltDeps;
+        private final Deque<Compilable> ready = new ArrayDeque<>();
+        private final PriorityQueue<Queued> runnable = new PriorityQueue<>();
+        // null while no duration is recorded, then every compilable is as urgent as any other
+        private final long[] remainingPaths;
+        private final BlockingQueue<Future<Step>> done = new LinkedBlockingQueue<>();
+        private final CompletionService<Step> compilations = new ExecutorCompletionService<>(workers, done);
+        private final CompletionService<Step> probes = new ExecutorCompletionService<>(probers, done);
+        private int running;
+        private int compiling;
+        private long sequence;
+        private long runnableSince;
+
+        private Run(BuildGraph graph, BitSet modified, Optional<ModificationOracle> lazyProbe) {
+            this.graph = graph;
+            this.dependencies = graph.dependencies();
+            this.members = new BitSet(dependencies.vertexCount());
+            for (int id : graph.ids())
+                members.set(id);
+            this.modified = modified;
+            this.lazyProbe = lazyProbe;
+            this.pendingDeps = new int[dependencies.vertexCount()];
+            this.rebuiltDeps = new BitSet(dependencies.vertexCount());
+            this.remainingPaths = remainingPaths(graph);
+        }
+
+        private void build() {
+            for (int id : graph.ids()) {
+                int inDegree = dependencies.inDegreeOf(id);
+                pendingDeps[id] = inDegree;
+                if (inDegree == 0)
+                    ready.add(graph.compilableOf(id));
+            }
+            while (!ready.isEmpty() || !runnable.isEmpty() || running > 0) {
+                while (!ready.isEmpty())
+                    dispatch(ready.poll());
+                long wait = startBatches();
+                if (running > 0) {
+                    // compilations and probes both complete into done
+                    Future<Step> completed = wait < 0 ? Futures.take(compilations) : Futures.poll(compilations, wait);
+                    if (completed == null)
+                        continue;
+                    Step step = Futures.await(completed);
+                    running--;
+                    if (!step.isProbe)
+                        completeBatch(step);
+                    else if (step.modified)
+                        compile(step.compilables.get(0));
+                    else
+                        skip(step.compilables.get(0));
+                }
+            }
+        }
+
+        /**
+         * Hands batches of runnable compilables to free workers
+         *
+         * @return time until a partial batch is due, if one waits to fill up, or -1
+         */
+        private long startBatches() {
+            while (compiling < parallelism && !runnable.isEmpty()) {
+                if (runnable.size() < maxBatchSize && running > 0) {
+                    long due = runnableSince + batchDeadlineNanos - System.nanoTime();
+                    if (due > 0)
+                        return due;
+                }
+                List<Compilable> batch = new ArrayList<>(Math.min(maxBatchSize, runnable.size()));
+                while (batch.size() < maxBatchSize && !runnable.isEmpty())
+                    batch.add(runnable.poll().compilable);
+                startCompilation(batch);
+            }
+            return -1;
+        }
+
+        /**
+         * A batch of more than one compilable is timed as a whole, it says nothing about how long each of its
+         * compilables takes on its own, so their recorded durations are left as they are
+         */
+        private void completeBatch(Step step) {
+            compiling--;
+            metrics.count(BuildMetrics.Counter.BATCHES, 1);
+            if (step.compilables.size() == 1) {
+                durations.record(graph.buildFile(), step.compilables.get(0).getName(), step.nanos);
+                metrics.compileLatency(step.nanos);
+            } else {
+                metrics.batchLatency(step.nanos);
+            }
+            for (Compilable c : step.compilables) {
+                metrics.count(BuildMetrics.Counter.COMPILES, 1);
+                release(c, true);
+            }
+        }
+
+        private void dispatch(Compilable c) {
+            if (modified.get(c.getId()) || rebuiltDeps.get(c.getId()))
+                compile(c);
+            else if (lazyProbe.isPresent() && c.getType() == Compilable.Type.FILE)
+                probe(c, lazyProbe.get());
+            else
+                skip(c);
+        }
+
+        private void compile(Compilable c) {
+            if (runnable.isEmpty())
+                runnableSince = System.nanoTime();
+            runnable.add(new Queued(c, remainingPaths != null ? remainingPaths[c.getId()] : 0, sequence++));
+            metrics.count(BuildMetrics.Counter.DIRTY, 1);
+            metrics.readyQueueSize(runnable.size());
+        }
+
+        private void startCompilation(List<Compilable> batch) {
+            List<String> names = new ArrayList<>(batch.size());
+            for (Compilable c : batch)
+                names.add(c.getName());
+            compilations.submit(() -> {
+                long start = System.nanoTime();
+                compiler.compile(names);
+                return new Step(batch, false, true, System.nanoTime() - start);
+            });
+            compiling++;
+            running++;
+        }
+
+        private void probe(Compilable c, ModificationOracle oracle) {
+            probes.submit(() -> {
+                boolean wasModified = oracle.modified(Collections.singletonList(c.getName())).contains(c.getName());
+                return new Step(Collections.singletonList(c), true, wasModified, 0);
+            });
+            running++;
+        }
+
+        private void skip(Compilable c) {
+            metrics.count(BuildMetrics.Counter.SKIPPED, 1);
+            release(c, false);
+        }
+
+        /**
+         * Dependants outside of the build are left alone
+         */
+        private void release(Compilable c, boolean wasCompiled) {
+            for (int i = 0, d = dependencies.outDegreeOf(c.getId()); i < d; i++) {
+                int dependant = dependencies.successor(c.getId(), i);
+                if (!members.get(dependant))
+                    continue;
+                if (wasCompiled)
+                    rebuiltDeps.set(dependant);
+                if (--pendingDeps[dependant] == 0)
+                    ready.add(graph.compilableOf(dependant));
+            }
+        }
+    }
+}
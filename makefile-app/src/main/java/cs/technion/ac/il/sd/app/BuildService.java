@@ -0,0 +1,66 @@
+package cs.technion.ac.il.sd.app;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Processes many build files concurrently, through a single {@link Makefile}, on a bounded pool of builders.
+ * Every build keeps its state to itself, builds share only the compile and probe pools,
+ * the graph cache, the compile durations and the metrics, all of which are safe for concurrent use.
+ */
+public class BuildService {
+
+    private final Makefile makefile;
+    private final ExecutorService builders;
+
+    @Inject
+    public BuildService(Makefile makefile, @Named(MakefileModule.BUILDERS) ExecutorService builders) {
+        this.makefile = makefile;
+        this.builders = builders;
+    }
+
+    /**
+     * Processes file on the builder pool, see {@link Makefile#processFile(File)}
+     */
+    public Future<?> submit(File file) {
+        return builders.submit(() -> makefile.processFile(file));
+    }
+
+    /**
+     * Builds goals of file on the builder pool, see {@link Makefile#processFile(File, Collection)}
+     */
+    public Future<?> submit(File file, Collection<String> goals) {
+        return builders.submit(() -> makefile.processFile(file, goals));
+    }
+
+    /**
+     * Processes every file of files concurrently, and waits for all of them.
+     * A failing build does not stop the others, once all are done the first failure is rethrown,
+     * with later ones added to it as suppressed.
+     */
+    public void processFiles(Collection<File> files) {
+        List<Future<?>> builds = new ArrayList<>(files.size());
+        for (File file : files)
+            builds.add(submit(file));
+        RuntimeException failure = null;
+        for (Future<?> build : builds) {
+            try {
+                Futures.await(build);
+            } catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -1,7 +1,10 @@
 package cs.technion.ac.il.sd.app;
 
 /**
- * Compilable - represents either File or Task compilable object
+ * Compilable - represents either File or Task compilable object.
+ * Compilables are immutable, so a parsed graph can back any number of builds,
+ * each of which keeps its own state in arrays indexed by {@link #getId()},
+ * such as the modified files found by {@link MakefileParser#modifiedAmong}.
  */
 public interface Compilable {
 
@@ -11,10 +14,9 @@ public interface Compilable {
     }
     String getName();
     Type getType();
-    boolean wasModified();
-    boolean wasModified(boolean wasModified);
-    boolean wasTraversed();
-    boolean wasTraversed(boolean wasTraversed_);
-
 
+    /**
+     * @return id of this compilable in the build file it was parsed from
+     */
+    int getId();
 }
@@ -6,15 +6,13 @@ package cs.technion.ac.il.sd.app;
 public class CompilableImpl implements Compilable {
 
     private final String name;
-    private Type type;
-    private boolean wasModified;
-    private boolean wasTraversed;
+    private final Type type;
+    private final int id;
 
-    public CompilableImpl(String name, Type type) {
+    public CompilableImpl(String name, Type type, int id) {
         this.name = name;
         this.type = type;
-        this.wasModified = false;
-        this.wasTraversed = false;
+        this.id = id;
     }
 
     @Override
@@ -28,24 +26,8 @@ public class CompilableImpl implements Compilable {
     }
 
     @Override
-    public boolean wasModified() {
-        return wasModified;
-    }
-
-    @Override
-    public boolean wasModified(boolean wasModified_) {
-        boolean prevWasModified = wasModified;
-        wasModified = wasModified_;
-        return prevWasModified;
-    }
-    @Override
-    public boolean wasTraversed(){return wasTraversed;}
-    @Override
-    public boolean wasTraversed(boolean wasTraversed_)
-    {
-        boolean prevWasTraversed = this.wasTraversed;
-        this.wasTraversed = wasTraversed_;
-        return prevWasTraversed;
+    public int getId() {
+        return id;
     }
 
     @Override
@@ -53,7 +35,7 @@ public class CompilableImpl implements Compilable {
         return "{" +
                 "name='" + name + '\'' +
                 ", type=" + type +
-                ", wasModified=" + wasModified +
+                ", id=" + id +
                 '}';
     }
 }
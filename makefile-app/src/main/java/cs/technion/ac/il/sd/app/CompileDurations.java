@@ -0,0 +1,31 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.OptionalLong;
+
+/**
+ * Compile durations of targets, recorded across builds.
+ * Durations are kept apart per build file, since build files may declare different targets of the same name.
+ * A build file is named by its absolute path, see {@link BuildGraph#buildFile()}.
+ */
+public interface CompileDurations {
+
+    /**
+     * @return recorded compile duration of the target name of buildFile in nanoseconds, if any
+     */
+    OptionalLong durationOf(String buildFile, String name);
+
+    /**
+     * Records that compiling the target name of buildFile took nanos nanoseconds
+     */
+    void record(String buildFile, String name, long nanos);
+
+    /**
+     * @return true iff no duration is recorded for any target of buildFile
+     */
+    boolean isEmpty(String buildFile);
+
+    /**
+     * Persists what was recorded so far
+     */
+    void flush();
+}
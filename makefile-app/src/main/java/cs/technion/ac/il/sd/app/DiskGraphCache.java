@@ -0,0 +1,123 @@
+package cs.technion.ac.il.sd.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link GraphCache} which keeps one snapshot file per build file content in a directory.
+ * Snapshots are named by the SHA-256 of the build file's bytes and of the charset they are decoded with,
+ * so a changed file can never hit a stale snapshot. Unreadable snapshots are treated as misses and deleted,
+ * and snapshots are written to a temporary file first, so readers never see half written ones.
+ */
+public class DiskGraphCache implements GraphCache {
+
+    private static final Logger LOGGER = Logger.getLogger(DiskGraphCache.class.getName());
+    private static final String SUFFIX = ".graph";
+
+    private final Path directory;
+
+    public DiskGraphCache(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    @Override
+    public Entry lookup(File buildFile) {
+        long length = buildFile.length();
+        long lastModified = buildFile.lastModified();
+        Path path = directory.resolve(contentHash(buildFile) + SUFFIX);
+        return new Entry() {
+            @Override
+            public Optional<GraphSnapshot> snapshot() {
+                return read(path);
+            }
+
+            @Override
+            public void store(Supplier<GraphSnapshot> snapshot) {
+                if (buildFile.length() == length && buildFile.lastModified() == lastModified)
+                    write(path, snapshot.get());
+            }
+        };
+    }
+
+    private static String contentHash(File buildFile) {
+        try (FileChannel channel = FileChannel.open(buildFile.toPath(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Charset.defaultCharset().name().getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest())
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Optional<GraphSnapshot> read(Path path) {
+        if (!Files.isRegularFile(path))
+            return Optional.empty();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            DataInputStream data = new DataInputStream(in);
+            GraphSnapshot snapshot = GraphSnapshot.readFrom(data);
+            if (data.read() != -1)
+                throw new IOException("trailing bytes");
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "dropping unreadable graph snapshot " + path, e);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+            return Optional.empty();
+        }
+    }
+
+    private void write(Path path, GraphSnapshot snapshot) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "snapshot", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                snapshot.writeTo(new DataOutputStream(out));
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "could not store graph snapshot " + path, e);
+            try {
+                if (temp != null)
+                    Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
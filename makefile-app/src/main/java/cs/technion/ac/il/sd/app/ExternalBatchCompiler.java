@@ -0,0 +1,26 @@
+package cs.technion.ac.il.sd.app;
+
+import com.google.inject.Inject;
+import cs.technion.ac.il.sd.ExternalCompiler;
+
+import java.util.List;
+
+/**
+ * {@link BatchCompiler} which calls {@link ExternalCompiler#compile} once per target of the batch, in order.
+ * It is bound when batching is off, so every batch it gets holds a single target.
+ */
+public class ExternalBatchCompiler implements BatchCompiler {
+
+    private final ExternalCompiler external;
+
+    @Inject
+    public ExternalBatchCompiler(ExternalCompiler external) {
+        this.external = external;
+    }
+
+    @Override
+    public void compile(List<String> names) {
+        for (String name : names)
+            external.compile(name);
+    }
+}
@@ -0,0 +1,66 @@
+package cs.technion.ac.il.sd.app;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import cs.technion.ac.il.sd.ExternalCompiler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * {@link ModificationOracle} which asks {@link ExternalCompiler#wasModified} once per distinct name.
+ * The queries are split into slices which run on a bounded pool, so slow queries overlap.
+ */
+public class ExternalModificationOracle implements ModificationOracle {
+
+    /** Aim for at least this many slices, so all probe workers get work */
+    private static final int MIN_SLICES = 32;
+    /** Largest number of names queried by a single task */
+    private static final int MAX_SLICE = 256;
+
+    private final ExternalCompiler external;
+    private final ExecutorService probers;
+    private final BuildMetrics metrics;
+
+    @Inject
+    public ExternalModificationOracle(ExternalCompiler external, @Named(MakefileModule.PROBE_WORKERS) ExecutorService probers,
+                                      BuildMetrics metrics) {
+        this.external = external;
+        this.probers = probers;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Set<String> modified(Collection<String> names) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(names));
+        if (distinct.size() <= 1)
+            return probe(distinct);
+        int slice = Math.max(1, Math.min(MAX_SLICE, distinct.size() / MIN_SLICES));
+        List<Future<Set<String>>> slices = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += slice) {
+            List<String> sliceNames = distinct.subList(from, Math.min(distinct.size(), from + slice));
+            slices.add(probers.submit(() -> probe(sliceNames)));
+        }
+        Set<String> modified = new HashSet<>();
+        slices.forEach(f -> modified.addAll(Futures.await(f)));
+        return modified;
+    }
+
+    private Set<String> probe(List<String> names) {
+        Set<String> modified = new HashSet<>();
+        for (String name : names) {
+            long start = System.nanoTime();
+            boolean wasModified = external.wasModified(name);
+            metrics.wasModifiedLatency(System.nanoTime() - start);
+            if (wasModified)
+                modified.add(name);
+        }
+        return modified;
+    }
+}
@@ -1,6 +1,7 @@
 package cs.technion.ac.il.sd.app;
 
 import java.io.File;
+import java.util.Collection;
 
 import com.google.inject.Inject;
 
@@ -32,4 +33,9 @@ public class FakeMakefile implements Makefile {
         throw new UnsupportedOperationException("http://i.imgflip.com/112boa.jpg");
     }
   }
+
+  @Override
+  public void processFile(File file, Collection<String> goals) {
+    throw new UnsupportedOperationException("http://i.imgflip.com/112boa.jpg");
+  }
 }
@@ -0,0 +1,93 @@
+package cs.technion.ac.il.sd.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link CompileDurations} persisted in a properties file of build file and target name to nanoseconds,
+ * each key being the build file, ':' and the target name. Target names never contain ':', so a key is split
+ * at its last one.
+ * The file is read once on creation, and replaced atomically on a flush if anything was recorded since the last one.
+ */
+public class FileCompileDurations extends InMemoryCompileDurations {
+
+    private static final Logger LOGGER = Logger.getLogger(FileCompileDurations.class.getName());
+
+    private final Path file;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public FileCompileDurations(File file) {
+        this.file = file.toPath();
+        if (Files.isRegularFile(this.file))
+            load();
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "ignoring unreadable compile durations " + file, e);
+            return;
+        }
+        properties.stringPropertyNames().forEach(key -> {
+            int split = key.lastIndexOf(':');
+            if (split < 0)
+                return;
+            try {
+                durations.computeIfAbsent(key.substring(0, split), f -> new ConcurrentHashMap<>())
+                        .put(key.substring(split + 1), Long.parseLong(properties.getProperty(key)));
+            } catch (NumberFormatException ignored) {
+            }
+        });
+    }
+
+    @Override
+    public void record(String buildFile, String name, long nanos) {
+        super.record(buildFile, name, nanos);
+        dirty.set(true);
+    }
+
+    @Override
+    public synchronized void flush() {
+        // a duration recorded while writing marks the file dirty again, for the next flush
+        if (!dirty.getAndSet(false))
+            return;
+        Properties properties = new Properties();
+        durations.forEach((buildFile, targets) -> targets.forEach((name, nanos) ->
+                properties.setProperty(buildFile + ':' + name, Long.toString(nanos))));
+        Path temp = null;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "durations", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "compile durations in nanoseconds");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "could not store compile durations " + file, e);
+            dirty.set(true);
+            try {
+                if (temp != null)
+                    Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
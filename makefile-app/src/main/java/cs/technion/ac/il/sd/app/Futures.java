@@ -0,0 +1,65 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for waiting on work handed to worker pools
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Waits for future, rethrowing whatever its task threw as is
+     *
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    public static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("build was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Waits for the next completed task of completions
+     *
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    public static <T> Future<T> take(CompletionService<T> completions) {
+        try {
+            return completions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("build was interrupted", e);
+        }
+    }
+
+    /**
+     * Waits up to nanos for the next completed task of completions
+     *
+     * @return the completed task, or null if none completed in time
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    public static <T> Future<T> poll(CompletionService<T> completions, long nanos) {
+        try {
+            return completions.poll(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("build was interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cs.technion.ac.il.sd.app;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache of parsed build files, keyed by their content
+ */
+public interface GraphCache {
+
+    /**
+     * A cache which never hits
+     */
+    GraphCache NONE = buildFile -> new Entry() {
+        @Override
+        public Optional<GraphSnapshot> snapshot() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void store(Supplier<GraphSnapshot> snapshot) {
+        }
+    };
+
+    /**
+     * Looks up the current content of buildFile
+     */
+    Entry lookup(File buildFile);
+
+    /**
+     * Cache slot of one build file content
+     */
+    interface Entry {
+        /**
+         * @return the snapshot stored for this content, if any
+         */
+        Optional<GraphSnapshot> snapshot();
+
+        /**
+         * Stores the snapshot supplied for this content. Does nothing if the file changed since it was looked up.
+         * The snapshot is only built if it is stored
+         */
+        void store(Supplier<GraphSnapshot> snapshot);
+    }
+}
@@ -0,0 +1,200 @@
+package cs.technion.ac.il.sd.app;
+
+import cs.technion.ac.il.sd.library.IntToposortResult;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact, immutable snapshot of a parsed build file: every compilable by id with its type and
+ * dependency ids, and either a topological order of all ids or the ids blocking one.
+ * An acyclic snapshot may also hold the dependency ids of the transitive reduction of the graph.
+ */
+public final class GraphSnapshot {
+
+    private static final int MAGIC = 0x4D4B4753;
+    private static final int FORMAT_VERSION = 2;
+
+    private final String[] names;
+    private final Compilable.Type[] types;
+    private final int[][] dependencies;
+    private final int[] order;
+    private final int[] cycle;
+    private final int[][] reducedDependencies;
+
+    private GraphSnapshot(String[] names, Compilable.Type[] types, int[][] dependencies, int[] order, int[] cycle,
+                          int[][] reducedDependencies) {
+        this.names = names;
+        this.types = types;
+        this.dependencies = dependencies;
+        this.order = order;
+        this.cycle = cycle;
+        this.reducedDependencies = reducedDependencies;
+    }
+
+    /**
+     * @param p        parsed build file
+     * @param toposort result of sorting p's dependencies graph, whose vertices are p's ids
+     */
+    public static GraphSnapshot of(MakefileParser p, IntToposortResult toposort) {
+        int count = p.getCompilablesCount();
+        String[] names = new String[count];
+        Compilable.Type[] types = new Compilable.Type[count];
+        int[][] dependencies = new int[count][];
+        for (int id = 0; id < count; id++) {
+            Compilable c = p.getCompilable(id);
+            names[id] = c.getName();
+            types[id] = c.getType();
+            dependencies[id] = p.getDependencyIds(id).clone();
+        }
+        return new GraphSnapshot(names, types, dependencies,
+                toposort.getOrder().clone(), toposort.getCycleVertices().clone(), null);
+    }
+
+    /**
+     * @param reducedDependencies dependency ids of every id in the transitive reduction of this snapshot's graph
+     * @return this snapshot, holding reducedDependencies as well
+     * @throws IllegalArgumentException if this snapshot is not sorted or reducedDependencies does not cover every id
+     */
+    public GraphSnapshot withReduction(int[][] reducedDependencies) {
+        if (!isSorted())
+            throw new IllegalArgumentException("a cyclic graph has no transitive reduction");
+        if (reducedDependencies.length != names.length)
+            throw new IllegalArgumentException("expected dependencies of " + names.length + " ids, got " + reducedDependencies.length);
+        return new GraphSnapshot(names, types, dependencies, order, cycle, reducedDependencies);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public Compilable.Type typeOf(int id) {
+        return types[id];
+    }
+
+    /**
+     * @return dependency ids of id. The array is shared, callers must not modify it
+     */
+    public int[] dependenciesOf(int id) {
+        return dependencies[id];
+    }
+
+    public boolean hasReduction() {
+        return reducedDependencies != null;
+    }
+
+    /**
+     * @return dependency ids of id in the transitive reduction. The array is shared, callers must not modify it
+     * @throws IllegalStateException if this snapshot holds no reduction
+     */
+    public int[] reducedDependenciesOf(int id) {
+        if (reducedDependencies == null)
+            throw new IllegalStateException("snapshot holds no reduction");
+        return reducedDependencies[id];
+    }
+
+    /**
+     * @return true iff the graph has a topological order
+     */
+    public boolean isSorted() {
+        return cycle.length == 0;
+    }
+
+    /**
+     * @return ids in topological order if {@link #isSorted()}. The array is shared, callers must not modify it
+     */
+    public int[] order() {
+        return order;
+    }
+
+    /**
+     * @return ids on or between cycles, empty iff {@link #isSorted()}. The array is shared, callers must not modify it
+     */
+    public int[] cycle() {
+        return cycle;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(names.length);
+        for (int id = 0; id < names.length; id++) {
+            byte[] name = names[id].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+            out.writeByte(types[id].ordinal());
+            writeIds(out, dependencies[id]);
+        }
+        writeIds(out, order);
+        writeIds(out, cycle);
+        out.writeBoolean(reducedDependencies != null);
+        if (reducedDependencies != null)
+            for (int[] ids : reducedDependencies)
+                writeIds(out, ids);
+    }
+
+    /**
+     * @throws IOException if in does not hold a valid snapshot
+     */
+    public static GraphSnapshot readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+            throw new IOException("not a graph snapshot of version " + FORMAT_VERSION);
+        int count = readLength(in);
+        String[] names = new String[count];
+        Compilable.Type[] types = new Compilable.Type[count];
+        int[][] dependencies = new int[count][];
+        Compilable.Type[] allTypes = Compilable.Type.values();
+        for (int id = 0; id < count; id++) {
+            byte[] name = new byte[readLength(in)];
+            in.readFully(name);
+            names[id] = new String(name, StandardCharsets.UTF_8);
+            int type = in.readByte();
+            if (type < 0 || type >= allTypes.length)
+                throw new IOException("bad type " + type);
+            types[id] = allTypes[type];
+            dependencies[id] = readIds(in, count);
+        }
+        int[] order = readIds(in, count);
+        int[] cycle = readIds(in, count);
+        if (cycle.length == 0 && order.length != count)
+            throw new IOException("inconsistent order");
+        int[][] reducedDependencies = null;
+        if (in.readBoolean()) {
+            if (cycle.length != 0)
+                throw new IOException("reduction of a cyclic graph");
+            reducedDependencies = new int[count][];
+            for (int id = 0; id < count; id++)
+                reducedDependencies[id] = readIds(in, count);
+        }
+        return new GraphSnapshot(names, types, dependencies, order, cycle, reducedDependencies);
+    }
+
+    private static void writeIds(DataOutput out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids)
+            out.writeInt(id);
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            throw new IOException("negative length " + length);
+        return length;
+    }
+
+    private static int[] readIds(DataInput in, int count) throws IOException {
+        int[] ids = new int[readLength(in)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readInt();
+            if (ids[i] < 0 || ids[i] >= count)
+                throw new IOException("id out of range " + ids[i]);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,37 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CompileDurations} kept in memory, as an exponential moving average of the recorded durations
+ */
+public class InMemoryCompileDurations implements CompileDurations {
+
+    /** Durations by target name, by build file */
+    protected final Map<String, Map<String, Long>> durations = new ConcurrentHashMap<>();
+
+    @Override
+    public OptionalLong durationOf(String buildFile, String name) {
+        Map<String, Long> targets = durations.get(buildFile);
+        Long nanos = targets == null ? null : targets.get(name);
+        return nanos == null ? OptionalLong.empty() : OptionalLong.of(nanos);
+    }
+
+    @Override
+    public void record(String buildFile, String name, long nanos) {
+        durations.computeIfAbsent(buildFile, f -> new ConcurrentHashMap<>())
+                .merge(name, nanos, (previous, latest) -> (previous + latest) / 2);
+    }
+
+    @Override
+    public boolean isEmpty(String buildFile) {
+        Map<String, Long> targets = durations.get(buildFile);
+        return targets == null || targets.isEmpty();
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,140 @@
+package cs.technion.ac.il.sd.app;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BuildMetrics} which accumulates measurements and exports them as an MXBean
+ */
+public class JmxBuildMetrics implements BuildMetrics, BuildMetricsMXBean {
+
+    /** Domain and type of the names metrics are registered under */
+    public static final String OBJECT_NAME_PREFIX = "cs.technion.ac.il.sd.app:type=BuildMetrics,name=";
+
+    private final Map<Phase, AtomicLong> phases = new EnumMap<>(Phase.class);
+    private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+    private final LatencyHistogram compileLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram wasModifiedLatency = new LatencyHistogram();
+    private final AtomicLong peakReadyQueueSize = new AtomicLong();
+
+    public JmxBuildMetrics() {
+        for (Phase phase : Phase.values())
+            phases.put(phase, new AtomicLong());
+        for (Counter counter : Counter.values())
+            counters.put(counter, new AtomicLong());
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server, replacing metrics registered under the same name
+     *
+     * @return the name these metrics were registered under
+     * @throws IllegalArgumentException if name does not make a valid object name
+     */
+    public ObjectName register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("invalid metrics name: " + name, e);
+        }
+        try {
+            try {
+                server.registerMBean(this, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                try {
+                    server.unregisterMBean(objectName);
+                } catch (InstanceNotFoundException ignored) {
+                }
+                server.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            throw new AssertionError(e);
+        }
+        return objectName;
+    }
+
+    @Override
+    public void phase(Phase phase, long nanos) {
+        phases.get(phase).addAndGet(nanos);
+    }
+
+    @Override
+    public void compileLatency(long nanos) {
+        compileLatency.record(nanos);
+    }
+
+    @Override
+    public void batchLatency(long nanos) {
+        batchLatency.record(nanos);
+    }
+
+    @Override
+    public void wasModifiedLatency(long nanos) {
+        wasModifiedLatency.record(nanos);
+    }
+
+    @Override
+    public void count(Counter counter, long delta) {
+        counters.get(counter).addAndGet(delta);
+    }
+
+    @Override
+    public void readyQueueSize(int size) {
+        peakReadyQueueSize.accumulateAndGet(size, Math::max);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        phases.forEach((phase, nanos) -> result.put(phase.name(), nanos.get()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        counters.forEach((counter, value) -> result.put(counter.name(), value.get()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getCompileLatency() {
+        return compileLatency.summary();
+    }
+
+    @Override
+    public Map<String, Long> getBatchLatency() {
+        return batchLatency.summary();
+    }
+
+    @Override
+    public Map<String, Long> getWasModifiedLatency() {
+        return wasModifiedLatency.summary();
+    }
+
+    @Override
+    public long getPeakReadyQueueSize() {
+        return peakReadyQueueSize.get();
+    }
+
+    @Override
+    public void reset() {
+        phases.values().forEach(nanos -> nanos.set(0));
+        counters.values().forEach(value -> value.set(0));
+        compileLatency.reset();
+        batchLatency.reset();
+        wasModifiedLatency.reset();
+        peakReadyQueueSize.set(0);
+    }
+}
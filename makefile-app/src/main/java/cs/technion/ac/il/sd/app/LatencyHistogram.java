@@ -0,0 +1,81 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of nanosecond latencies, bucketed by powers of two.
+ * Percentiles are reported as the upper bound of the bucket they fall in, so they are off by at most a factor of two.
+ */
+public class LatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long mean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return latency which at least quantile of the recorded latencies do not exceed, 0 if nothing was recorded
+     */
+    public long percentile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("quantile out of range: " + quantile);
+        long n = count.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            seen += buckets.get(b);
+            if (seen >= rank)
+                return Math.min(max.get(), b == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << (b + 1)) - 1);
+        }
+        return max.get();
+    }
+
+    /**
+     * @return count, mean, p50, p90, p99 and max, by name
+     */
+    public Map<String, Long> summary() {
+        Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("count", count());
+        summary.put("mean", mean());
+        summary.put("p50", percentile(0.5));
+        summary.put("p90", percentile(0.9));
+        summary.put("p99", percentile(0.99));
+        summary.put("max", max());
+        return summary;
+    }
+
+    public void reset() {
+        for (int b = 0; b < buckets.length(); b++)
+            buckets.set(b, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
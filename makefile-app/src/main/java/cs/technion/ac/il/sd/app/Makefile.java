@@ -1,7 +1,13 @@
 package cs.technion.ac.il.sd.app;
 
 import java.io.File;
+import java.util.Collection;
 
 public interface Makefile {
   void processFile(File file);
+
+  /**
+   * Builds only goals and the targets they depend on
+   */
+  void processFile(File file, Collection<String> goals);
 }
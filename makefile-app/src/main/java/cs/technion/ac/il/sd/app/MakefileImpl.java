@@ -1,67 +1,250 @@
 package cs.technion.ac.il.sd.app;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import cs.technion.ac.il.sd.ExternalCompiler;
 import cs.technion.ac.il.sd.library.GraphUtils;
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultEdge;
+import cs.technion.ac.il.sd.library.IntGraph;
+import cs.technion.ac.il.sd.library.IntToposortResult;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * Assigment 1 (Makefile) Implementation
  */
 public class MakefileImpl implements Makefile {
 
+    private static final Logger LOGGER = Logger.getLogger(MakefileImpl.class.getName());
+    private static final int LOGGED_CYCLE_NAMES = 20;
 
     private final ExternalCompiler external;
-    private HashSet<Compilable> traversed;
+    private final BuildScheduler scheduler;
+    private final GraphCache cache;
+    private final ModificationOracle oracle;
+    private final boolean lazyProbing;
+    private final boolean transitiveReduction;
+    private final BuildMetrics metrics;
 
     @Inject
-    public MakefileImpl(ExternalCompiler external) {
+    public MakefileImpl(ExternalCompiler external, @Named(MakefileModule.BUILD_WORKERS) ExecutorService workers,
+                        @Named(MakefileModule.BUILD_WORKERS) int parallelism,
+                        @Named(MakefileModule.PROBE_WORKERS) ExecutorService probers,
+                        GraphCache cache, ModificationOracle oracle, CompileDurations durations,
+                        @Named(MakefileModule.LAZY_PROBING) boolean lazyProbing,
+                        @Named(MakefileModule.TRANSITIVE_REDUCTION) boolean transitiveReduction, BuildMetrics metrics,
+                        BatchCompiler compiler, @Named(MakefileModule.BATCH_SIZE) int batchSize,
+                        @Named(MakefileModule.BATCH_DEADLINE) long batchDeadlineNanos) {
         this.external = external;
-        this.traversed = new HashSet<>();
+        this.scheduler = new BuildScheduler(compiler, workers, parallelism, probers, durations, metrics,
+                batchSize, batchDeadlineNanos);
+        this.cache = cache;
+        this.oracle = oracle;
+        this.lazyProbing = lazyProbing;
+        this.transitiveReduction = transitiveReduction;
+        this.metrics = metrics;
     }
 
     @Override
     public void processFile(File file) {
+        build(file, Optional.empty());
+    }
 
-        MakefileParser p = MakefileParser.parse(file).updateModified(external);
-        DirectedGraph<Compilable, DefaultEdge> depGraph = createDependenciesGraph(p);
-        Optional<Iterator<Compilable>> toposort = GraphUtils.toposort(depGraph);
-        if (!toposort.isPresent()) {
-            external.fail();
-            return;
+    /**
+     * Builds only the given goals and whatever they depend on, transitively.
+     * Modification is queried, and cycles are looked for, only among those compilables.
+     * Unless the build file's graph is cached, only those compilables are sorted,
+     * and the whole graph is sorted as well only if the cache keeps its snapshot.
+     *
+     * @throws IllegalArgumentException if goals is empty or a goal is not a target of file
+     */
+    @Override
+    public void processFile(File file, Collection<String> goals) {
+        if (goals.isEmpty())
+            throw new IllegalArgumentException("no goals given");
+        build(file, Optional.of(goals));
+    }
+
+    private void build(File file, Optional<Collection<String>> goals) {
+        long start = System.nanoTime();
+        try {
+            build(file, goals, start);
+        } finally {
+            metrics.phase(BuildMetrics.Phase.TOTAL, System.nanoTime() - start);
         }
-        toposort.get().forEachRemaining(c -> compileAndUpdateDependants(c, depGraph));
     }
 
-    private void compileAndUpdateDependants(Compilable compilable, DirectedGraph<Compilable, DefaultEdge> depGraph) {
-        if (compilable.wasModified()) {
-            external.compile(compilable.getName());
-            if (!traversed.contains(compilable)) {
-                GraphUtils.getAllReachableVerticesFromSource(depGraph, compilable)
-                        .forEach(this::traverseAndSetAsModified);
+    private void build(File file, Optional<Collection<String>> goals, long start) {
+        GraphCache.Entry cached = cache.lookup(file);
+        Optional<GraphSnapshot> snapshot = cached.snapshot();
+        if (snapshot.isPresent() && !snapshot.get().isSorted() && !goals.isPresent()) {
+            lap(BuildMetrics.Phase.PARSE, start);
+            failOnCycle(snapshot.get().cycle(), snapshot.get()::nameOf);
+            return;
+        }
+        MakefileParser p = snapshot.isPresent() ? MakefileParser.of(file, snapshot.get()) : MakefileParser.parse(file);
+        long phaseStart = lap(BuildMetrics.Phase.PARSE, start);
+        GraphSnapshot hit = snapshot.orElse(null);
+        boolean cachedReduction = transitiveReduction && hit != null && hit.hasReduction();
+        IntGraph graph = cachedReduction
+                ? createDependenciesGraph(p, hit::reducedDependenciesOf)
+                : createDependenciesGraph(p, p::getDependencyIds);
+        phaseStart = lap(BuildMetrics.Phase.GRAPH, phaseStart);
+        // topological order of the whole graph, null if it has a cycle or is not sorted
+        int[] order;
+        // result of sorting the whole graph on a miss, null if it was not sorted
+        IntToposortResult toposort = null;
+        if (hit != null) {
+            order = hit.isSorted() ? hit.order() : null;
+        } else if (goals.isPresent() && !transitiveReduction) {
+            // only the cone gets sorted, the whole graph is sorted only if the cache keeps its snapshot
+            order = null;
+        } else {
+            toposort = GraphUtils.toposortOrCycle(graph);
+            order = toposort.isSorted() ? toposort.getOrder() : null;
+        }
+        phaseStart = lap(BuildMetrics.Phase.CYCLE_CHECK, phaseStart);
+        IntGraph depGraph = graph;
+        IntGraph reduced = null;
+        if (transitiveReduction && order != null && !cachedReduction) {
+            reduced = GraphUtils.transitiveReduction(graph, order);
+            depGraph = reduced;
+            phaseStart = lap(BuildMetrics.Phase.GRAPH, phaseStart);
+        }
+        if (hit == null || reduced != null) {
+            IntToposortResult sorted = toposort;
+            IntGraph reduction = reduced;
+            cached.store(() -> snapshotOf(p, hit, graph, sorted, reduction));
+        }
+        if (toposort != null && !toposort.isSorted() && !goals.isPresent()) {
+            failOnCycle(toposort.getCycleVertices(), id -> p.getCompilable(id).getName());
+            return;
+        }
+        int[] ids = order;
+        if (goals.isPresent()) {
+            BitSet cone = coneOf(p, depGraph, goals.get());
+            phaseStart = lap(BuildMetrics.Phase.GRAPH, phaseStart);
+            if (order != null) {
+                ids = restrict(order, cone);
+            } else {
+                IntToposortResult coneSort = GraphUtils.toposortOrCycle(depGraph, cone);
+                phaseStart = lap(BuildMetrics.Phase.CYCLE_CHECK, phaseStart);
+                if (!coneSort.isSorted()) {
+                    failOnCycle(coneSort.getCycleVertices(), id -> p.getCompilable(id).getName());
+                    return;
+                }
+                ids = coneSort.getOrder();
             }
         }
+        BuildGraph buildGraph = new BuildGraph(file, depGraph, p::getCompilable, ids);
+        metrics.count(BuildMetrics.Counter.VERTICES, ids.length);
+        metrics.count(BuildMetrics.Counter.EDGES, buildGraph.edgeCount());
+        if (lazyProbing) {
+            scheduler.build(buildGraph, oracle);
+        } else {
+            BitSet modified = p.modifiedAmong(oracle, ids);
+            phaseStart = lap(BuildMetrics.Phase.PROBE, phaseStart);
+            scheduler.build(buildGraph, modified);
+        }
+        lap(BuildMetrics.Phase.BUILD, phaseStart);
+    }
+
+    /**
+     * Records the time since phaseStart as spent in phase
+     *
+     * @return the time phase ended at
+     */
+    private long lap(BuildMetrics.Phase phase, long phaseStart) {
+        long now = System.nanoTime();
+        metrics.phase(phase, now - phaseStart);
+        return now;
+    }
+
+    /**
+     * @return ids of goals and everything they depend on, found in a single traversal
+     */
+    private static BitSet coneOf(MakefileParser p, IntGraph depGraph, Collection<String> goals) {
+        int[] sources = goals.stream()
+                .mapToInt(goal -> {
+                    int id = p.getId(goal);
+                    if (id < 0)
+                        throw new IllegalArgumentException("no such target: " + goal);
+                    return id;
+                })
+                .toArray();
+        return GraphUtils.getAllReachableVerticesFromSources(depGraph.reversed(), sources);
+    }
+
+    /**
+     * @param hit      snapshot the cache held, or null on a miss
+     * @param graph    p's dependencies graph
+     * @param toposort result of sorting graph, or null if it was not sorted
+     * @param reduced  transitive reduction of graph to keep in the snapshot, or null
+     */
+    private static GraphSnapshot snapshotOf(MakefileParser p, GraphSnapshot hit, IntGraph graph,
+                                            IntToposortResult toposort, IntGraph reduced) {
+        GraphSnapshot snapshot = hit != null ? hit
+                : GraphSnapshot.of(p, toposort != null ? toposort : GraphUtils.toposortOrCycle(graph));
+        return reduced != null ? snapshot.withReduction(dependencyIdsOf(reduced)) : snapshot;
+    }
+
+    /**
+     * @return the ids of order which are in among, in the same order
+     */
+    private static int[] restrict(int[] order, BitSet among) {
+        int[] restricted = new int[among.cardinality()];
+        int size = 0;
+        for (int id : order)
+            if (among.get(id))
+                restricted[size++] = id;
+        return restricted;
     }
 
-    private void traverseAndSetAsModified(Compilable c) {
-        traversed.add(c);
-        c.wasModified(true);
+    /**
+     * Logs at most {@value #LOGGED_CYCLE_NAMES} of the names blocking the build, and only if warnings are logged
+     *
+     * @param cycle ids on or between cycles
+     */
+    private void failOnCycle(int[] cycle, IntFunction<String> nameOf) {
+        LOGGER.warning(() -> {
+            String names = Arrays.stream(cycle).limit(LOGGED_CYCLE_NAMES).mapToObj(nameOf).sorted()
+                    .collect(Collectors.joining(", ", "[", "]"));
+            int unlisted = cycle.length - LOGGED_CYCLE_NAMES;
+            return "dependency cycle between " + names + (unlisted > 0 ? " and " + unlisted + " more" : "");
+        });
+        external.fail();
+    }
+
+    /**
+     * @return the dependency ids of every vertex of graph, whose edges go from dependency to dependant
+     */
+    private static int[][] dependencyIdsOf(IntGraph graph) {
+        int[][] dependencies = new int[graph.vertexCount()][];
+        for (int id = 0; id < dependencies.length; id++) {
+            dependencies[id] = new int[graph.inDegreeOf(id)];
+            for (int i = 0; i < dependencies[id].length; i++)
+                dependencies[id][i] = graph.predecessor(id, i);
+        }
+        return dependencies;
     }
 
-    private DirectedGraph<Compilable, DefaultEdge> createDependenciesGraph(MakefileParser p) {
-        DirectedGraph<Compilable, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
-        Collection<Compilable> compilables = p.getCompilables();
-        compilables.forEach(graph::addVertex);
-        compilables.forEach(t -> p.getDependantsOf(t)
-                .forEach(d -> graph.addEdge(d, t)));
-        return graph;
+    /**
+     * @param dependencyIds dependency ids of every id of p
+     * @return the dependencies graph on p's ids, edges go from dependency to dependant
+     */
+    private static IntGraph createDependenciesGraph(MakefileParser p, IntFunction<int[]> dependencyIds) {
+        int count = p.getCompilablesCount();
+        IntGraph.Builder builder = IntGraph.builder(count);
+        for (int id = 0; id < count; id++)
+            for (int dependency : dependencyIds.apply(id))
+                builder.addEdge(dependency, id);
+        return builder.build();
     }
 }
@@ -1,10 +1,206 @@
 package cs.technion.ac.il.sd.app;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MakefileModule extends AbstractModule {
+  /** Name of the worker pool compilations are dispatched to */
+  public static final String BUILD_WORKERS = "makefile.build.workers";
+  /** Name of the pool {@link BuildService} runs builds on */
+  public static final String BUILDERS = "makefile.builders";
+  /** Name of the pool modification queries are fanned out to */
+  public static final String PROBE_WORKERS = "makefile.probe.workers";
+
+  /** Name of the flag which makes files be asked about modification only when the build reaches them */
+  public static final String LAZY_PROBING = "makefile.probe.lazy";
+
+  /** Name of the flag which makes builds run on the transitive reduction of the dependencies graph */
+  public static final String TRANSITIVE_REDUCTION = "makefile.graph.reduce";
+
+  /** Name of the largest number of compilables handed to the {@link BatchCompiler} at once */
+  public static final String BATCH_SIZE = "makefile.batch.size";
+  /** Name of the longest time, in nanoseconds, a ready compilable waits for its batch to fill up */
+  public static final String BATCH_DEADLINE = "makefile.batch.deadline";
+
+  /** Modification queries are I/O bound, so by default more of them run at once than compilations */
+  private static final int DEFAULT_PROBE_WORKERS = 8;
+  /** Builds mostly wait for compilations, so by default a few of them run at once */
+  private static final int DEFAULT_BUILDERS = 4;
+
+  private final int workers;
+  private int probeWorkers = DEFAULT_PROBE_WORKERS;
+  private int builders = DEFAULT_BUILDERS;
+  private boolean lazyProbing = false;
+  private boolean transitiveReduction = false;
+  private int batchSize = 1;
+  private long batchDeadlineNanos = 0;
+  private BatchCompiler batchCompiler;
+  private GraphCache graphCache = GraphCache.NONE;
+  private CompileDurations compileDurations = new InMemoryCompileDurations();
+  private BuildMetrics metrics = BuildMetrics.NONE;
+
+  public MakefileModule() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param workers number of compilations that may run concurrently
+   */
+  public MakefileModule(int workers) {
+    if (workers < 1)
+      throw new IllegalArgumentException("workers must be positive, got " + workers);
+    this.workers = workers;
+  }
+
+  /**
+   * Keeps snapshots of parsed build files in directory, so unchanged files are not parsed again
+   */
+  public MakefileModule withGraphCache(File directory) {
+    this.graphCache = new DiskGraphCache(directory);
+    return this;
+  }
+
+  /**
+   * Keeps compile durations, which order the build by critical path, in file across runs
+   * rather than only in memory
+   */
+  public MakefileModule withCompileDurations(File file) {
+    this.compileDurations = new FileCompileDurations(file);
+    return this;
+  }
+
+  /**
+   * Reports measurements of every build to metrics
+   */
+  public MakefileModule withMetrics(BuildMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * Reports measurements of every build to a {@link JmxBuildMetrics} registered under name
+   */
+  public MakefileModule withJmxMetrics(String name) {
+    JmxBuildMetrics jmx = new JmxBuildMetrics();
+    jmx.register(name);
+    return withMetrics(jmx);
+  }
+
+  /**
+   * @param probeWorkers number of modification queries that may run concurrently
+   */
+  public MakefileModule withProbeWorkers(int probeWorkers) {
+    if (probeWorkers < 1)
+      throw new IllegalArgumentException("probe workers must be positive, got " + probeWorkers);
+    this.probeWorkers = probeWorkers;
+    return this;
+  }
+
+  /**
+   * @param builders number of build files a {@link BuildService} processes concurrently
+   */
+  public MakefileModule withBuilders(int builders) {
+    if (builders < 1)
+      throw new IllegalArgumentException("builders must be positive, got " + builders);
+    this.builders = builders;
+    return this;
+  }
+
+  /**
+   * When enabled, a file is asked whether it was modified only when the build reaches it
+   * and none of its dependencies was compiled, instead of asking about all files up front
+   */
+  public MakefileModule withLazyProbing(boolean lazyProbing) {
+    this.lazyProbing = lazyProbing;
+    return this;
+  }
+
+  /**
+   * When enabled, redundant dependencies, which are implied by other dependencies, are dropped before building.
+   * The reduction is kept with the graph cache's snapshot, so it is computed once per build file content.
+   */
+  public MakefileModule withTransitiveReduction(boolean transitiveReduction) {
+    this.transitiveReduction = transitiveReduction;
+    return this;
+  }
+
+  /**
+   * Hands up to batchSize independent ready compilables to compiler at once, which should compile them in bulk,
+   * since a whole batch takes a single worker. While a build may still make more compilables ready,
+   * a smaller batch waits for them up to deadline.
+   * Without batching, every compilable is handed to {@link cs.technion.ac.il.sd.ExternalCompiler} on its own.
+   */
+  public MakefileModule withBatching(BatchCompiler compiler, int batchSize, long deadline, TimeUnit unit) {
+    if (compiler == null)
+      throw new IllegalArgumentException("batch compiler is null");
+    if (batchSize < 1)
+      throw new IllegalArgumentException("batch size must be positive, got " + batchSize);
+    if (deadline < 0)
+      throw new IllegalArgumentException("batch deadline must not be negative, got " + deadline);
+    this.batchCompiler = compiler;
+    this.batchSize = batchSize;
+    this.batchDeadlineNanos = unit.toNanos(deadline);
+    return this;
+  }
+
   @Override
   protected void configure() {
     bind(Makefile.class).to(MakefileImpl.class);
+    bind(GraphCache.class).toInstance(graphCache);
+    bind(ModificationOracle.class).to(ExternalModificationOracle.class);
+    if (batchCompiler != null)
+      bind(BatchCompiler.class).toInstance(batchCompiler);
+    else
+      bind(BatchCompiler.class).to(ExternalBatchCompiler.class);
+    bind(CompileDurations.class).toInstance(compileDurations);
+    bind(BuildMetrics.class).toInstance(metrics);
+    bindConstant().annotatedWith(Names.named(BUILD_WORKERS)).to(workers);
+    bindConstant().annotatedWith(Names.named(LAZY_PROBING)).to(lazyProbing);
+    bindConstant().annotatedWith(Names.named(TRANSITIVE_REDUCTION)).to(transitiveReduction);
+    bindConstant().annotatedWith(Names.named(BATCH_SIZE)).to(batchSize);
+    bindConstant().annotatedWith(Names.named(BATCH_DEADLINE)).to(batchDeadlineNanos);
+  }
+
+  @Provides
+  @Singleton
+  @Named(BUILD_WORKERS)
+  ExecutorService provideBuildWorkers() {
+    return daemonPool("makefile-worker-", workers);
+  }
+
+  @Provides
+  @Singleton
+  @Named(PROBE_WORKERS)
+  ExecutorService provideProbeWorkers() {
+    return daemonPool("makefile-probe-", probeWorkers);
+  }
+
+  @Provides
+  @Singleton
+  @Named(BUILDERS)
+  ExecutorService provideBuilders() {
+    return daemonPool("makefile-builder-", builders);
+  }
+
+  private static ExecutorService daemonPool(String namePrefix, int size) {
+    AtomicInteger threadId = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 5, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+          Thread t = new Thread(r, namePrefix + threadId.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
   }
 }
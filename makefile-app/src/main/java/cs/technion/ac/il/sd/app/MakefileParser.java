@@ -1,12 +1,16 @@
 package cs.technion.ac.il.sd.app;
 
-import cs.technion.ac.il.sd.ExternalCompiler;
-
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 /**
@@ -15,80 +19,248 @@ import java.util.stream.Collectors;
 public class MakefileParser {
 
     private final File file;
-    private HashMap<String, Compilable> nameToComp;
-    private HashMap<String, List<String>> nameToDepNames;
+    private final SymbolTable symbols;
+
+    /** Files at least this large are parsed through a memory mapping instead of a reader */
+    public static final long MAPPED_PARSE_THRESHOLD = 8L << 20;
+
+    /** Mapped files at least this large are tokenized in parallel chunks */
+    public static final long PARALLEL_PARSE_THRESHOLD = 64L << 20;
 
-    private static final String MAKEFILE_LINE_SPLITTER = "[\\s[=|:]\\s]+|[,\\s+]+|[\\s+$]";
+    /** Largest part of a file mapped at once */
+    private static final int MAPPED_SEGMENT_SIZE = 1 << 30;
+
+    /** Chunks up to this size are tokenized by a single fork join task */
+    private static final int PARALLEL_CHUNK_SIZE = 4 << 20;
 
     public static MakefileParser parse(File file) {
-        return new MakefileParser(file).parse();
+        return parse(file, MAPPED_PARSE_THRESHOLD, PARALLEL_PARSE_THRESHOLD);
+    }
+
+    /**
+     * @param mappedThreshold files at least this large are memory mapped and tokenized as bytes
+     */
+    public static MakefileParser parse(File file, long mappedThreshold) {
+        return parse(file, mappedThreshold, PARALLEL_PARSE_THRESHOLD);
+    }
+
+    /**
+     * @param mappedThreshold   files at least this large are memory mapped and tokenized as bytes
+     * @param parallelThreshold mapped files at least this large are split into line aligned chunks
+     *                          which are tokenized in parallel on the common fork join pool
+     */
+    public static MakefileParser parse(File file, long mappedThreshold, long parallelThreshold) {
+        MakefileParser p = new MakefileParser(file);
+        long length = file.length();
+        if (length < mappedThreshold)
+            return p.parse();
+        return p.parseMapped(MAPPED_SEGMENT_SIZE, length >= parallelThreshold);
+    }
+
+    /**
+     * Restores a parsed build file from its snapshot, without reading the file
+     */
+    public static MakefileParser of(File file, GraphSnapshot snapshot) {
+        MakefileParser p = new MakefileParser(file);
+        for (int id = 0; id < snapshot.size(); id++)
+            p.symbols.intern(snapshot.nameOf(id));
+        for (int id = 0; id < snapshot.size(); id++)
+            p.symbols.declare(snapshot.nameOf(id), snapshot.typeOf(id), snapshot.dependenciesOf(id));
+        return p;
     }
 
     private MakefileParser(File file) {
         this.file = file;
-        this.nameToComp = new HashMap<>();
-        this.nameToDepNames = new HashMap<>();
+        this.symbols = new SymbolTable();
     }
 
     private MakefileParser parse() {
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            br.lines().forEach(l -> {
-                String trm = l.trim();
-                if (!trm.equals(""))
-                    parseLine(trm);
-            });
+            br.lines().forEach(l -> MakefileTokenizer.tokenize(l, this::addRule));
         } catch (IOException e) {
             throw new AssertionError();
         }
         return this;
     }
 
-    private List<String> splitLine(String line) {
-        String[] ss = line.split(MAKEFILE_LINE_SPLITTER);
-        List<String> l = new ArrayList<>();
-        for (String s : ss) {
-            String trimmed = s.trim();
-            if (!trimmed.equals("")) {
-                l.add(s);
+    /**
+     * Maps the file segment by segment, each segment cut at its last line end,
+     * and tokenizes the bytes directly in the platform charset.
+     */
+    private MakefileParser parseMapped(int segmentSize, boolean inParallel) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            NameInterner names = new NameInterner(Charset.defaultCharset());
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(segmentSize, size - position);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = position + length == size ? length : lineAlignedEnd(segment, length);
+                if (inParallel)
+                    new ChunkTokenizer(segment, 0, end).invoke().forEach(this::addChunk);
+                else
+                    MakefileTokenizer.tokenize(segment, 0, end, names, this::addRule);
+                position += end;
             }
+        } catch (IOException e) {
+            throw new AssertionError(e);
         }
-        return l;
-    }
-
-    private void parseLine(String line) {
-        List<String> tasksOrFiles = splitLine(line);
-        Compilable.Type type = line.contains(":") ? Compilable.Type.FILE : Compilable.Type.TASK;
-        String target = tasksOrFiles.get(0);
-        nameToComp.put(target, new CompilableImpl(target, type));
-        List<String> dependencies = tasksOrFiles.subList(1, tasksOrFiles.size());
-        for (String d : dependencies) {
-            nameToComp.putIfAbsent(d, new CompilableImpl(d, Compilable.Type.FILE));
-            nameToDepNames.putIfAbsent(d, new ArrayList<>());
-        }
-        nameToDepNames.put(target, dependencies);
+        return this;
+    }
+
+    private static int lineAlignedEnd(ByteBuffer segment, int length) {
+        for (int i = length - 1; i >= 0; i--)
+            if (segment.get(i) == '\n')
+                return i + 1;
+        throw new IllegalStateException("line longer than " + length + " bytes");
+    }
+
+    /**
+     * @return start of the first line beginning at or after from, or to if there is none
+     */
+    private static int nextLineStart(ByteBuffer bytes, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (bytes.get(i) == '\n')
+                return i + 1;
+        return to;
+    }
+
+    /**
+     * Applies the rules of a chunk in the order of its lines, so names get the ids a sequential parse gives them
+     */
+    private void addChunk(List<Rule> chunk) {
+        for (Rule rule : chunk)
+            addRule(rule.target, rule.type, rule.dependencies);
+    }
+
+    private void addRule(String target, Compilable.Type type, List<String> dependencies) {
+        int[] dependencyIds = new int[dependencies.size()];
+        for (int i = 0; i < dependencyIds.length; i++)
+            dependencyIds[i] = symbols.intern(dependencies.get(i));
+        symbols.declare(target, type, dependencyIds);
     }
 
     public Optional<Compilable> getCompilable(String name) {
-        return Optional.of(nameToComp.get(name));
+        int id = symbols.idOf(name);
+        return id < 0 ? Optional.empty() : Optional.of(symbols.compilableOf(id));
     }
 
     public Set<Compilable> getCompilables() {
-        return nameToComp.values()
-                .stream()
-                .collect(Collectors.toSet());
+        Set<Compilable> compilables = new HashSet<>();
+        for (int id = 0; id < symbols.size(); id++)
+            compilables.add(symbols.compilableOf(id));
+        return compilables;
     }
 
     public Set<Compilable> getDependantsOf(Compilable target) {
-        return nameToDepNames.get(target.getName())
-                .stream()
-                .map(nameToComp::get)
+        return Arrays.stream(symbols.dependenciesOf(getId(target.getName())))
+                .mapToObj(symbols::compilableOf)
                 .collect(Collectors.toSet());
     }
 
-    public MakefileParser updateModified(ExternalCompiler external) {
-        nameToComp.values().stream()
+    /**
+     * @return number of compilables, their ids are 0..getCompilablesCount()-1
+     */
+    public int getCompilablesCount() {
+        return symbols.size();
+    }
+
+    /**
+     * @return id of the compilable named name, or -1 if there is none
+     */
+    public int getId(String name) {
+        return symbols.idOf(name);
+    }
+
+    public Compilable getCompilable(int id) {
+        return symbols.compilableOf(id);
+    }
+
+    /**
+     * @return ids of the dependencies of the compilable with the given id.
+     *  The array is shared, callers must not modify it
+     */
+    public int[] getDependencyIds(int id) {
+        return symbols.dependenciesOf(id);
+    }
+
+    /**
+     * Queries which files among the given compilables were modified, all at once through oracle,
+     * without touching the compilables, so the result belongs to a single build
+     *
+     * @return ids of the modified files
+     */
+    public BitSet modifiedAmong(ModificationOracle oracle, Collection<Compilable> among) {
+        List<Compilable> files = among.stream()
                 .filter(c -> c.getType() == Compilable.Type.FILE)
-                .forEach(c -> c.wasModified(external.wasModified(c.getName())));
-        return this;
+                .collect(Collectors.toList());
+        Set<String> names = oracle.modified(files.stream().map(Compilable::getName).collect(Collectors.toList()));
+        BitSet modified = new BitSet(symbols.size());
+        for (Compilable c : files)
+            if (names.contains(c.getName()))
+                modified.set(c.getId());
+        return modified;
+    }
+
+    /**
+     * Like {@link #modifiedAmong(ModificationOracle, Collection)}, among the compilables with the given ids
+     */
+    public BitSet modifiedAmong(ModificationOracle oracle, int[] among) {
+        List<Compilable> compilables = new ArrayList<>(among.length);
+        for (int id : among)
+            compilables.add(symbols.compilableOf(id));
+        return modifiedAmong(oracle, compilables);
+    }
+
+    /**
+     * A rule of a line, as tokenized by a chunk
+     */
+    private static final class Rule {
+        private final String target;
+        private final Compilable.Type type;
+        private final List<String> dependencies;
+
+        private Rule(String target, Compilable.Type type, List<String> dependencies) {
+            this.target = target;
+            this.type = type;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Splits bytes[from, to) at line starts until chunks are small enough and tokenizes them in parallel,
+     * returning the rules of every chunk in line order, chunks in file order
+     */
+    private static final class ChunkTokenizer extends RecursiveTask<List<List<Rule>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer bytes;
+        private final int from;
+        private final int to;
+
+        private ChunkTokenizer(ByteBuffer bytes, int from, int to) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<List<Rule>> compute() {
+            int middle = to - from > PARALLEL_CHUNK_SIZE ? nextLineStart(bytes, from + (to - from) / 2, to) : to;
+            if (middle == to) {
+                List<Rule> chunk = new ArrayList<>();
+                MakefileTokenizer.tokenize(bytes, from, to, new NameInterner(Charset.defaultCharset()),
+                        (target, type, dependencies) -> chunk.add(new Rule(target, type, dependencies)));
+                List<List<Rule>> chunks = new ArrayList<>();
+                chunks.add(chunk);
+                return chunks;
+            }
+            ChunkTokenizer first = new ChunkTokenizer(bytes, from, middle);
+            first.fork();
+            List<List<Rule>> second = new ChunkTokenizer(bytes, middle, to).compute();
+            List<List<Rule>> chunks = first.join();
+            chunks.addAll(second);
+            return chunks;
+        }
     }
 }
@@ -0,0 +1,119 @@
+package cs.technion.ac.il.sd.app;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass, regex free tokenizer of build file lines.
+ * A line is a target followed by its dependencies, e.g. "main = t, f.java" for a task
+ * or "f.cpp : f.h, f.go" for a file. Tokens are separated by any run of whitespace or of the
+ * characters '=', ':', ',', '|', '+' and '$', and a line which contains ':' declares a file.
+ */
+public final class MakefileTokenizer {
+
+    /**
+     * Receives the rule found on a line
+     */
+    @FunctionalInterface
+    public interface RuleHandler {
+        void onRule(String target, Compilable.Type type, List<String> dependencies);
+    }
+
+    private MakefileTokenizer() {
+    }
+
+    /**
+     * @return true iff c separates tokens of a build file line
+     */
+    public static boolean isSeparator(int c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case '=':
+            case ':':
+            case ',':
+            case '|':
+            case '+':
+            case '$':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Tokenizes a single line and passes its rule to handler.
+     * Lines with no tokens are ignored.
+     */
+    public static void tokenize(CharSequence line, RuleHandler handler) {
+        int length = line.length();
+        String target = null;
+        List<String> dependencies = null;
+        boolean isFile = false;
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (isSeparator(c)) {
+                isFile |= c == ':';
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && !isSeparator(line.charAt(i)))
+                i++;
+            String token = line.subSequence(start, i).toString();
+            if (target == null) {
+                target = token;
+                dependencies = new ArrayList<>();
+            } else {
+                dependencies.add(token);
+            }
+        }
+        if (target != null)
+            handler.onRule(target, isFile ? Compilable.Type.FILE : Compilable.Type.TASK, dependencies);
+    }
+
+    /**
+     * Tokenizes the lines held in bytes[from, to) and passes their rules to handler.
+     * Lines end at '\n', lines with no tokens are ignored.
+     * Tokens are turned into names through names, so each distinct name is decoded once.
+     * Separators are all ASCII, so this is correct for any ASCII compatible charset.
+     */
+    public static void tokenize(ByteBuffer bytes, int from, int to, NameInterner names, RuleHandler handler) {
+        int i = from;
+        while (i < to) {
+            String target = null;
+            List<String> dependencies = null;
+            boolean isFile = false;
+            while (i < to) {
+                byte b = bytes.get(i);
+                if (b == '\n') {
+                    i++;
+                    break;
+                }
+                if (isSeparator(b)) {
+                    isFile |= b == ':';
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < to && !isSeparator(bytes.get(i)))
+                    i++;
+                String token = names.intern(bytes, start, i);
+                if (target == null) {
+                    target = token;
+                    dependencies = new ArrayList<>();
+                } else {
+                    dependencies.add(token);
+                }
+            }
+            if (target != null)
+                handler.onRule(target, isFile ? Compilable.Type.FILE : Compilable.Type.TASK, dependencies);
+        }
+    }
+}
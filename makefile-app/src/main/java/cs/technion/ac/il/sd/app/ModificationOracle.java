@@ -0,0 +1,17 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Answers which files were modified, for many files at once.
+ * Implementations may fan the queries out or answer them with a single bulk call.
+ */
+public interface ModificationOracle {
+
+    /**
+     * @param names names of files, possibly with duplicates
+     * @return the names among names which were modified
+     */
+    Set<String> modified(Collection<String> names);
+}
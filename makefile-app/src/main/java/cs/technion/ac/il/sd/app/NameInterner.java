@@ -0,0 +1,122 @@
+package cs.technion.ac.il.sd.app;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Interns names read as raw bytes.
+ * A name is decoded into a {@link String} only the first time its bytes are seen,
+ * every later occurrence is resolved by hashing and comparing bytes and returns the same instance.
+ * A name of printable ASCII bytes, which an ASCII compatible charset decodes one char per byte,
+ * is compared against the chars of its String, so it is held only once. Only other names keep their bytes.
+ * Not thread safe.
+ */
+public final class NameInterner {
+
+    private final Charset charset;
+    private int[] hashes;
+    private String[] names;
+    /** bytes of every name which is not printable ASCII, null for the rest */
+    private byte[][] encoded;
+    private int size;
+    /** open addressing table of entry index + 1, 0 marks an empty slot */
+    private int[] slots;
+
+    /**
+     * @param charset an ASCII compatible charset, like every charset {@link MakefileTokenizer} reads
+     */
+    public NameInterner(Charset charset) {
+        this.charset = charset;
+        this.hashes = new int[64];
+        this.names = new String[64];
+        this.encoded = new byte[64][];
+        this.slots = new int[128];
+    }
+
+    /**
+     * @return the name whose bytes are bytes[from, to), decoded once per distinct name
+     */
+    public String intern(ByteBuffer bytes, int from, int to) {
+        int hash = hash(bytes, from, to);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                entry = add(bytes, from, to, hash);
+                slots[slot] = entry + 1;
+                if (size * 2 > slots.length)
+                    rehash();
+                return names[entry];
+            }
+            if (hashes[entry] == hash && sameBytes(entry, bytes, from, to))
+                return names[entry];
+        }
+    }
+
+    /**
+     * @return number of distinct names interned so far
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int hash(ByteBuffer bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++)
+            h = 31 * h + bytes.get(i);
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean isPrintableAscii(byte b) {
+        return b >= 0x20 && b < 0x7F;
+    }
+
+    private boolean sameBytes(int entry, ByteBuffer bytes, int from, int to) {
+        byte[] raw = encoded[entry];
+        if (raw != null) {
+            if (raw.length != to - from)
+                return false;
+            for (int i = from, j = 0; i < to; i++, j++)
+                if (bytes.get(i) != raw[j])
+                    return false;
+            return true;
+        }
+        String name = names[entry];
+        if (name.length() != to - from)
+            return false;
+        for (int i = from, j = 0; i < to; i++, j++)
+            if (bytes.get(i) != name.charAt(j))
+                return false;
+        return true;
+    }
+
+    private int add(ByteBuffer bytes, int from, int to, int hash) {
+        if (size == names.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+            encoded = Arrays.copyOf(encoded, size * 2);
+        }
+        byte[] raw = new byte[to - from];
+        boolean printable = true;
+        for (int i = from; i < to; i++) {
+            raw[i - from] = bytes.get(i);
+            printable &= isPrintableAscii(raw[i - from]);
+        }
+        hashes[size] = hash;
+        names[size] = new String(raw, charset);
+        encoded[size] = printable ? null : raw;
+        return size++;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = entry + 1;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cs.technion.ac.il.sd.app;
+
+import java.util.Arrays;
+
+/**
+ * Symbol table of a build file.
+ * Every target name gets a dense int id, in the order names are first seen, and dependencies are
+ * kept as arrays of ids, so later stages can index plain arrays instead of hashing names.
+ * A name which is only referenced as a dependency is an implicit {@link Compilable.Type#FILE}
+ * with no dependencies until it is declared.
+ * Not thread safe.
+ */
+public final class SymbolTable {
+
+    private static final int[] NO_DEPENDENCIES = new int[0];
+
+    private String[] names;
+    private Compilable[] compilables;
+    private int[][] dependencies;
+    private int size;
+    /** open addressing table of id + 1, 0 marks an empty slot */
+    private int[] slots;
+
+    public SymbolTable() {
+        this.names = new String[64];
+        this.compilables = new Compilable[64];
+        this.dependencies = new int[64][];
+        this.slots = new int[128];
+    }
+
+    /**
+     * @return number of names in the table, ids are 0..size-1
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return id of name, or -1 if name is not in the table
+     */
+    public int idOf(String name) {
+        int mask = slots.length - 1;
+        for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0)
+                return -1;
+            if (names[id].equals(name))
+                return id;
+        }
+    }
+
+    /**
+     * @return id of name, adding it as an implicit file if it is not in the table
+     */
+    public int intern(String name) {
+        int mask = slots.length - 1;
+        for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                id = add(name);
+                slots[slot] = id + 1;
+                if (size * 2 > slots.length)
+                    rehash();
+                return id;
+            }
+            if (names[id].equals(name))
+                return id;
+        }
+    }
+
+    /**
+     * Declares name with the given type and dependencies, overriding any earlier declaration
+     *
+     * @return id of name
+     */
+    public int declare(String name, Compilable.Type type, int[] dependencyIds) {
+        int id = intern(name);
+        compilables[id] = new CompilableImpl(name, type, id);
+        dependencies[id] = dependencyIds;
+        return id;
+    }
+
+    public String nameOf(int id) {
+        return names[checkId(id)];
+    }
+
+    public Compilable compilableOf(int id) {
+        return compilables[checkId(id)];
+    }
+
+    /**
+     * @return ids of the dependencies of id. The array is shared, callers must not modify it
+     */
+    public int[] dependenciesOf(int id) {
+        return dependencies[checkId(id)];
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= size)
+            throw new IllegalArgumentException("no such id: " + id);
+        return id;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int add(String name) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            compilables = Arrays.copyOf(compilables, size * 2);
+            dependencies = Arrays.copyOf(dependencies, size * 2);
+        }
+        names[size] = name;
+        compilables[size] = new CompilableImpl(name, Compilable.Type.FILE, size);
+        dependencies[size] = NO_DEPENDENCIES;
+        return size++;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(names[id]) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.BuildFileGenerator.Shape;
+import cs.technion.ac.il.sd.app.Compilable;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import cs.technion.ac.il.sd.app.MakefileParser;
+import cs.technion.ac.il.sd.library.GraphUtils;
+import cs.technion.ac.il.sd.library.IntGraph;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link BuildFileGenerator}
+ */
+public class BuildFileGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    private static String write(BuildFileGenerator generator) throws IOException {
+        StringWriter writer = new StringWriter();
+        generator.writeTo(writer);
+        return writer.toString();
+    }
+
+    private static IntGraph graphOf(BuildFileGenerator generator) throws IOException {
+        IntGraph.Builder builder = IntGraph.builder(generator.targetCount());
+        generator.generate((id, type, dependencies) -> {
+            for (int dependency : dependencies)
+                builder.addEdge(dependency, id);
+        });
+        return builder.build();
+    }
+
+    @Test
+    public void sameSeedSameFile() throws IOException {
+        for (Shape shape : Shape.values())
+            Assert.assertEquals(shape.name(), write(BuildFileGenerator.of(shape, 500).withSeed(7)),
+                    write(BuildFileGenerator.of(shape, 500).withSeed(7)));
+    }
+
+    @Test
+    public void seedChangesRandomShapes() throws IOException {
+        Assert.assertNotEquals(write(BuildFileGenerator.of(Shape.RANDOM, 500).withSeed(1)),
+                write(BuildFileGenerator.of(Shape.RANDOM, 500).withSeed(2)));
+        Assert.assertNotEquals(write(BuildFileGenerator.of(Shape.LAYERED, 500).withSeed(1)),
+                write(BuildFileGenerator.of(Shape.LAYERED, 500).withSeed(2)));
+    }
+
+    @Test
+    public void shapesAreAcyclic() throws IOException {
+        for (Shape shape : Shape.values()) {
+            IntGraph graph = graphOf(BuildFileGenerator.of(shape, 1000).withSeed(3));
+            Assert.assertEquals(shape.name(), 1000, graph.vertexCount());
+            Assert.assertFalse(shape.name(), GraphUtils.hasCycle(graph));
+        }
+    }
+
+    @Test
+    public void shapesHaveTheirEdges() throws IOException {
+        Assert.assertEquals(999, graphOf(BuildFileGenerator.of(Shape.CHAIN, 1000)).edgeCount());
+        Assert.assertEquals(999, graphOf(BuildFileGenerator.of(Shape.FAN_IN, 1000)).inDegreeOf(999));
+        Assert.assertEquals(999, graphOf(BuildFileGenerator.of(Shape.FAN_OUT, 1000)).outDegreeOf(0));
+        Assert.assertEquals(3, graphOf(BuildFileGenerator.of(Shape.TREE, 40).withFanOut(3)).outDegreeOf(0));
+        IntGraph diamond = graphOf(BuildFileGenerator.of(Shape.DIAMOND, 100));
+        Assert.assertEquals(2 * 90, diamond.edgeCount());
+        IntGraph random = graphOf(BuildFileGenerator.of(Shape.RANDOM, 10000).withDensity(2.5));
+        Assert.assertEquals(25000, random.edgeCount(), 1000);
+        IntGraph dense = graphOf(BuildFileGenerator.of(Shape.DENSE, 1000));
+        Assert.assertEquals(500, dense.inDegreeOf(500));
+        Assert.assertEquals(500 + 1 + 2 * 498, dense.edgeCount());
+    }
+
+    @Test
+    public void layersDependOnLowerLayers() throws IOException {
+        BuildFileGenerator generator = BuildFileGenerator.of(Shape.LAYERED, 1000).withLayers(10).withDensity(3);
+        generator.generate((id, type, dependencies) -> {
+            Assert.assertEquals(id < 100, dependencies.length == 0);
+            for (int dependency : dependencies)
+                Assert.assertTrue(dependency / 100 < id / 100);
+        });
+    }
+
+    @Test
+    public void plantedCyclesAreCycles() throws IOException {
+        BuildFileGenerator generator = BuildFileGenerator.of(Shape.CHAIN, 1000).withPlantedCycles(3, 4);
+        Assert.assertEquals(1012, generator.targetCount());
+        Assert.assertTrue(GraphUtils.hasCycle(graphOf(generator)));
+    }
+
+    @Test
+    public void writtenFileParses() throws IOException {
+        File file = folder.newFile("generated_build.txt");
+        BuildFileGenerator generator = BuildFileGenerator.of(Shape.RANDOM, 2000).withSeed(5).withPlantedCycles(2, 3);
+        generator.writeTo(file);
+        MakefileParser parser = MakefileParser.parse(file);
+        Assert.assertEquals(generator.targetCount(), parser.getCompilablesCount());
+        generator.generate((id, type, dependencies) -> {
+            Compilable c = parser.getCompilable(BuildFileGenerator.nameOf(id)).get();
+            Assert.assertEquals(type, c.getType());
+            Assert.assertEquals(dependencies.length, parser.getDependencyIds(parser.getId(c.getName())).length);
+        });
+    }
+
+    @Test
+    public void plantedCyclesFailTheBuild() throws IOException {
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(true);
+        File file = folder.newFile("cyclic_build.txt");
+        BuildFileGenerator.of(Shape.LAYERED, 2000).withPlantedCycles(1, 5).writeTo(file);
+        Guice.createInjector(new MakefileModule(), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(mock);
+            }
+        }).getInstance(Makefile.class).processFile(file);
+        verify(mock).fail();
+        verify(mock, never()).compile(anyString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        BuildFileGenerator.of(Shape.CHAIN, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotPlantMoreCyclesThanTargets() {
+        BuildFileGenerator.of(Shape.CHAIN, 10).withPlantedCycles(11, 1);
+    }
+}
@@ -0,0 +1,153 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildMetrics;
+import cs.technion.ac.il.sd.app.JmxBuildMetrics;
+import cs.technion.ac.il.sd.app.LatencyHistogram;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.mockito.Mockito;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link JmxBuildMetrics}
+ */
+public class BuildMetricsTest {
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    private final ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+    private final JmxBuildMetrics metrics = new JmxBuildMetrics();
+
+    private void processFile(MakefileModule module, String name) {
+        Guice.createInjector(module.withMetrics(metrics), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(mock);
+            }
+        }).getInstance(Makefile.class)
+                .processFile(new File(getClass().getResource(name + "_build.txt").getFile()));
+    }
+
+    @Test
+    public void countsDirtyCompilables() {
+        when(mock.wasModified("src")).thenReturn(true);
+        processFile(new MakefileModule(), "parallel");
+        Map<String, Long> counters = metrics.getCounters();
+        Assert.assertEquals(4, (long) counters.get("VERTICES"));
+        Assert.assertEquals(4, (long) counters.get("EDGES"));
+        Assert.assertEquals(4, (long) counters.get("DIRTY"));
+        Assert.assertEquals(4, (long) counters.get("COMPILES"));
+        Assert.assertEquals(0, (long) counters.get("SKIPPED"));
+        Assert.assertEquals(4, (long) metrics.getCompileLatency().get("count"));
+        Assert.assertEquals(3, (long) metrics.getWasModifiedLatency().get("count"));
+        Assert.assertTrue(metrics.getPeakReadyQueueSize() >= 1);
+    }
+
+    @Test
+    public void countsSkippedCompilables() {
+        processFile(new MakefileModule(), "parallel");
+        Map<String, Long> counters = metrics.getCounters();
+        Assert.assertEquals(0, (long) counters.get("COMPILES"));
+        Assert.assertEquals(4, (long) counters.get("SKIPPED"));
+        Assert.assertEquals(0, metrics.getPeakReadyQueueSize());
+    }
+
+    @Test
+    public void lazyProbesAreTimed() {
+        when(mock.wasModified("src")).thenReturn(true);
+        processFile(new MakefileModule().withLazyProbing(true), "parallel");
+        Assert.assertEquals(1, (long) metrics.getWasModifiedLatency().get("count"));
+        Assert.assertEquals(4, (long) metrics.getCounters().get("COMPILES"));
+    }
+
+    @Test
+    public void batchesAreTimedApartFromSingleCompiles() {
+        when(mock.wasModified("src")).thenReturn(true);
+        processFile(new MakefileModule(1).withBatching(names -> names.forEach(mock::compile), 8, 1, TimeUnit.SECONDS),
+                "parallel");
+        // src and main are compiled on their own, a and b together
+        Assert.assertEquals(2, (long) metrics.getCompileLatency().get("count"));
+        Assert.assertEquals(1, (long) metrics.getBatchLatency().get("count"));
+        Assert.assertEquals(3, (long) metrics.getCounters().get("BATCHES"));
+        Assert.assertEquals(4, (long) metrics.getCounters().get("COMPILES"));
+    }
+
+    @Test
+    public void phasesAreTimed() {
+        processFile(new MakefileModule(), "parallel");
+        Map<String, Long> phases = metrics.getPhaseNanos();
+        long total = phases.get(BuildMetrics.Phase.TOTAL.name());
+        Assert.assertTrue(total > 0);
+        Assert.assertTrue(phases.get(BuildMetrics.Phase.PARSE.name()) > 0);
+        long parts = phases.entrySet().stream()
+                .filter(e -> !e.getKey().equals(BuildMetrics.Phase.TOTAL.name()))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        Assert.assertTrue(parts <= total);
+    }
+
+    @Test
+    public void cycleIsTimedAsCycleCheck() {
+        processFile(new MakefileModule(), "cycle");
+        verify(mock).fail();
+        Assert.assertTrue(metrics.getPhaseNanos().get(BuildMetrics.Phase.CYCLE_CHECK.name()) > 0);
+        Assert.assertEquals(0, (long) metrics.getPhaseNanos().get(BuildMetrics.Phase.BUILD.name()));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        when(mock.wasModified("src")).thenReturn(true);
+        processFile(new MakefileModule(), "parallel");
+        metrics.reset();
+        Assert.assertTrue(metrics.getCounters().values().stream().allMatch(v -> v == 0));
+        Assert.assertTrue(metrics.getPhaseNanos().values().stream().allMatch(v -> v == 0));
+        Assert.assertEquals(0, (long) metrics.getCompileLatency().get("count"));
+        Assert.assertEquals(0, (long) metrics.getBatchLatency().get("count"));
+        Assert.assertEquals(0, metrics.getPeakReadyQueueSize());
+    }
+
+    @Test
+    public void isExportedOverJmx() throws JMException {
+        when(mock.wasModified("src")).thenReturn(true);
+        ObjectName name = metrics.register("BuildMetricsTest");
+        try {
+            processFile(new MakefileModule(), "parallel");
+            TabularData counters = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counters");
+            Assert.assertEquals(4L, counters.get(new Object[]{"COMPILES"}).get("value"));
+            // registering again under the same name replaces the registered metrics
+            Assert.assertEquals(name, new JmxBuildMetrics().register("BuildMetricsTest"));
+            Assert.assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PeakReadyQueueSize"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void histogramPercentilesAreBucketBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100; nanos++)
+            histogram.record(nanos);
+        Assert.assertEquals(100, histogram.count());
+        Assert.assertEquals(50, histogram.mean());
+        Assert.assertEquals(100, histogram.max());
+        // 50 falls in [32, 63], 99 in [64, 127] which is capped by the max
+        Assert.assertEquals(63, histogram.percentile(0.5));
+        Assert.assertEquals(100, histogram.percentile(0.99));
+        Assert.assertEquals(1, histogram.percentile(0));
+    }
+}
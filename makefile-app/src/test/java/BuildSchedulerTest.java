@@ -0,0 +1,289 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BatchCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.BuildGraph;
+import cs.technion.ac.il.sd.app.BuildMetrics;
+import cs.technion.ac.il.sd.app.BuildScheduler;
+import cs.technion.ac.il.sd.app.InMemoryCompileDurations;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import cs.technion.ac.il.sd.app.MakefileParser;
+import cs.technion.ac.il.sd.library.IntGraph;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link BuildScheduler}
+ */
+public class BuildSchedulerTest {
+
+    /**
+     * Compiler which records compilation order, and makes the compilation of a and b wait for each other
+     */
+    private static class RecordingCompiler implements ExternalCompiler {
+        private final List<String> compiled = Collections.synchronizedList(new ArrayList<>());
+        private final CyclicBarrier independent = new CyclicBarrier(2);
+
+        @Override
+        public void compile(String name) {
+            if (name.equals("a") || name.equals("b")) {
+                try {
+                    independent.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new AssertionError("a and b were not compiled concurrently", e);
+                }
+            }
+            compiled.add(name);
+        }
+
+        @Override
+        public boolean wasModified(String name) {
+            return true;
+        }
+
+        @Override
+        public void fail() {
+            throw new AssertionError("should not fail");
+        }
+    }
+
+    private final RecordingCompiler compiler = new RecordingCompiler();
+
+    private Makefile makefile(int workers) {
+        return makefile(new MakefileModule(workers), compiler);
+    }
+
+    private static Makefile makefile(Module module, ExternalCompiler external) {
+        Injector injector = Guice.createInjector(module, new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(external);
+            }
+        });
+        return injector.getInstance(Makefile.class);
+    }
+
+    private void processFile(Makefile makefile, String name) {
+        makefile.processFile(new File(getClass().getResource(name + "_build.txt").getFile()));
+    }
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void independentCompilablesCompileConcurrently() {
+        processFile(makefile(2), "parallel");
+        Assert.assertEquals(4, compiler.compiled.size());
+        Assert.assertEquals("src", compiler.compiled.get(0));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")),
+                new HashSet<>(compiler.compiled.subList(1, 3)));
+        Assert.assertEquals("main", compiler.compiled.get(3));
+    }
+
+    @Test
+    public void dependantsCompileAfterDependenciesWithManyWorkers() {
+        processFile(makefile(8), "parallel");
+        Assert.assertTrue(compiler.compiled.indexOf("src") < compiler.compiled.indexOf("a"));
+        Assert.assertTrue(compiler.compiled.indexOf("src") < compiler.compiled.indexOf("b"));
+        Assert.assertTrue(compiler.compiled.indexOf("a") < compiler.compiled.indexOf("main"));
+        Assert.assertTrue(compiler.compiled.indexOf("b") < compiler.compiled.indexOf("main"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveWorkersThrows() {
+        new MakefileModule(0);
+    }
+
+    /**
+     * Files whose dependencies were compiled are dirty anyway, so a lazy build does not ask about them
+     */
+    @Test
+    public void lazyProbingSkipsFilesWithRebuiltDependencies() {
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(false);
+        when(mock.wasModified("f.asm")).thenReturn(true);
+        processFile(makefile(new MakefileModule(4).withLazyProbing(true), mock), "bigger");
+        verify(mock, never()).wasModified("f.go");
+        verify(mock, never()).wasModified("f.cpp");
+        verify(mock).wasModified("f.asm");
+        verify(mock).wasModified("f.h");
+        InOrder inOrder = Mockito.inOrder(mock);
+        inOrder.verify(mock).compile("f.asm");
+        inOrder.verify(mock).compile("f.go");
+        inOrder.verify(mock).compile("f.cpp");
+        inOrder.verify(mock).compile("main");
+        verify(mock, times(5)).compile(anyString());
+        verify(mock, never()).fail();
+    }
+
+    @Test
+    public void lazyProbingOnUnmodifiedFileCompilesNothing() {
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(false);
+        processFile(makefile(new MakefileModule(2).withLazyProbing(true), mock), "bigger");
+        verify(mock, never()).compile(anyString());
+        verify(mock, never()).fail();
+    }
+
+    /**
+     * Batch compiler which records the batches it gets
+     */
+    private static class RecordingBatchCompiler implements BatchCompiler {
+        private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void compile(List<String> names) {
+            batches.add(new ArrayList<>(names));
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readyCompilablesAreBatchedInDependencyOrder() {
+        RecordingBatchCompiler batchCompiler = new RecordingBatchCompiler();
+        processFile(makefile(new MakefileModule(1).withBatching(batchCompiler, 8, 1, TimeUnit.SECONDS), compiler), "parallel");
+        Assert.assertEquals(3, batchCompiler.batches.size());
+        Assert.assertEquals(Collections.singletonList("src"), batchCompiler.batches.get(0));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(batchCompiler.batches.get(1)));
+        Assert.assertEquals(Collections.singletonList("main"), batchCompiler.batches.get(2));
+    }
+
+    /**
+     * Tests that batches are capped, and that a partial batch is sent once its deadline passes
+     * even though another batch is still running
+     */
+    @Test
+    public void batchesAreCappedAndPartialBatchesAreSentByDeadline() throws IOException {
+        File file = folder.newFile("fan_out_build.txt");
+        BuildFileGenerator.of(BuildFileGenerator.Shape.FAN_OUT, 8).writeTo(file);
+        CountDownLatch partialSent = new CountDownLatch(1);
+        RecordingBatchCompiler batchCompiler = new RecordingBatchCompiler() {
+            @Override
+            public void compile(List<String> names) {
+                super.compile(names);
+                if (names.size() == 3) {
+                    try {
+                        Assert.assertTrue("partial batch was not sent while a full one ran",
+                                partialSent.await(2, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                } else if (names.size() == 1 && !names.contains("t0"))
+                    partialSent.countDown();
+            }
+        };
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(true);
+        makefile(new MakefileModule(3).withBatching(batchCompiler, 3, 20, TimeUnit.MILLISECONDS), mock).processFile(file);
+        Assert.assertEquals(Arrays.asList(1, 3, 3, 1),
+                batchCompiler.batches.stream().map(List::size).collect(Collectors.toList()));
+        Assert.assertEquals(Collections.singletonList("t0"), batchCompiler.batches.get(0));
+    }
+
+    /**
+     * Tests that batches keep dependency order
+     */
+    @Test
+    public void batchesKeepDependencyOrder() {
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(false);
+        when(mock.wasModified("f.asm")).thenReturn(true);
+        BatchCompiler bulk = names -> names.forEach(mock::compile);
+        processFile(makefile(new MakefileModule(2).withBatching(bulk, 4, 10, TimeUnit.MILLISECONDS), mock), "bigger");
+        InOrder inOrder = Mockito.inOrder(mock);
+        inOrder.verify(mock).compile("f.asm");
+        inOrder.verify(mock).compile("f.go");
+        inOrder.verify(mock).compile("main");
+        verify(mock, times(5)).compile(anyString());
+        verify(mock, never()).fail();
+    }
+
+    @Test
+    public void batchedBuildOfCycleFailsOnce() {
+        ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+        when(mock.wasModified(anyString())).thenReturn(true);
+        processFile(makefile(new MakefileModule(2).withBatching(new RecordingBatchCompiler(), 4, 10, TimeUnit.MILLISECONDS),
+                mock), "cycle");
+        verify(mock, never()).compile(anyString());
+        verify(mock, times(1)).fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveBatchSizeThrows() {
+        new MakefileModule().withBatching(new RecordingBatchCompiler(), 0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchingWithoutCompilerThrows() {
+        new MakefileModule().withBatching(null, 4, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that one parsed graph backs two concurrent builds, each with its own modified files
+     */
+    @Test
+    public void sharedGraphBacksConcurrentBuilds() throws Exception {
+        File file = new File(getClass().getResource("bigger_build.txt").getFile());
+        MakefileParser p = MakefileParser.parse(file);
+        IntGraph.Builder builder = IntGraph.builder(p.getCompilablesCount());
+        for (int id = 0; id < p.getCompilablesCount(); id++)
+            for (int dependency : p.getDependencyIds(id))
+                builder.addEdge(dependency, id);
+        BuildGraph graph = new BuildGraph(file, builder.build(), p::getCompilable,
+                IntStream.range(0, p.getCompilablesCount()).toArray());
+        RecordingBatchCompiler asmBuild = new RecordingBatchCompiler(), javaBuild = new RecordingBatchCompiler();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            BitSet asm = new BitSet(), java = new BitSet();
+            asm.set(p.getId("f.asm"));
+            java.set(p.getId("f.java"));
+            Future<?> first = pool.submit(() -> scheduler(asmBuild, pool).build(graph, asm));
+            Future<?> second = pool.submit(() -> scheduler(javaBuild, pool).build(graph, java));
+            first.get();
+            second.get();
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(5, asmBuild.batches.size());
+        Assert.assertEquals(Collections.singletonList("f.asm"), asmBuild.batches.get(0));
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("f.java"), Collections.singletonList("main")),
+                javaBuild.batches);
+    }
+
+    private static BuildScheduler scheduler(BatchCompiler batchCompiler, ExecutorService pool) {
+        return new BuildScheduler(batchCompiler, pool, 1, pool, new InMemoryCompileDurations(), BuildMetrics.NONE, 1, 0);
+    }
+}
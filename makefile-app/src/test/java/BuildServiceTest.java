@@ -0,0 +1,166 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.BuildService;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link BuildService}
+ */
+public class BuildServiceTest {
+
+    /**
+     * Thread safe compiler which reports every file as modified and counts calls
+     */
+    private static class CountingCompiler implements ExternalCompiler {
+        final AtomicInteger compiles = new AtomicInteger();
+        final AtomicInteger fails = new AtomicInteger();
+
+        @Override
+        public void compile(String name) {
+            compiles.incrementAndGet();
+        }
+
+        @Override
+        public boolean wasModified(String name) {
+            return true;
+        }
+
+        @Override
+        public void fail() {
+            fails.incrementAndGet();
+        }
+    }
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BuildService service(MakefileModule module, ExternalCompiler external) {
+        return Guice.createInjector(module, new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(external);
+            }
+        }).getInstance(BuildService.class);
+    }
+
+    private File generate(BuildFileGenerator generator) throws IOException {
+        File file = folder.newFile();
+        generator.writeTo(file);
+        return file;
+    }
+
+    private File write(String... lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void manyFilesAreEachBuiltOnce() throws IOException {
+        CountingCompiler compiler = new CountingCompiler();
+        List<File> files = new ArrayList<>();
+        for (BuildFileGenerator.Shape shape : BuildFileGenerator.Shape.values())
+            for (int copy = 0; copy < 3; copy++)
+                files.add(generate(BuildFileGenerator.of(shape, 200).withSeed(copy)));
+        service(new MakefileModule(2).withBuilders(8), compiler).processFiles(files);
+        Assert.assertEquals(files.size() * 200, compiler.compiles.get());
+        Assert.assertEquals(0, compiler.fails.get());
+    }
+
+    /**
+     * Tests that builds of the same file, one after the other and at once, do not see each other's state
+     */
+    @Test
+    public void repeatedBuildsOfOneFileAreIndependent() throws IOException {
+        CountingCompiler compiler = new CountingCompiler();
+        File file = generate(BuildFileGenerator.of(BuildFileGenerator.Shape.DIAMOND, 100));
+        BuildService service = service(new MakefileModule(2).withBuilders(4), compiler);
+        service.processFiles(Collections.singletonList(file));
+        service.processFiles(Collections.singletonList(file));
+        Assert.assertEquals(200, compiler.compiles.get());
+        service.processFiles(Collections.nCopies(4, file));
+        Assert.assertEquals(600, compiler.compiles.get());
+    }
+
+    @Test
+    public void buildsRunConcurrently() throws IOException {
+        CyclicBarrier together = new CyclicBarrier(4);
+        CountingCompiler compiler = new CountingCompiler() {
+            @Override
+            public void compile(String name) {
+                try {
+                    together.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new AssertionError("builds were not run concurrently", e);
+                }
+                super.compile(name);
+            }
+        };
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            files.add(write("f" + i + " :"));
+        service(new MakefileModule(4).withBuilders(4), compiler).processFiles(files);
+        Assert.assertEquals(4, compiler.compiles.get());
+    }
+
+    @Test
+    public void cycleFailsOnlyItsOwnBuild() throws IOException {
+        CountingCompiler compiler = new CountingCompiler();
+        File cyclic = write("a = b", "b = a");
+        File chain = generate(BuildFileGenerator.of(BuildFileGenerator.Shape.CHAIN, 50));
+        service(new MakefileModule(2), compiler).processFiles(Arrays.asList(chain, cyclic, chain));
+        Assert.assertEquals(1, compiler.fails.get());
+        Assert.assertEquals(100, compiler.compiles.get());
+    }
+
+    @Test
+    public void failedBuildIsRethrownAfterOthersFinish() throws IOException {
+        CountingCompiler compiler = new CountingCompiler() {
+            @Override
+            public void compile(String name) {
+                if (name.equals("broken"))
+                    throw new IllegalStateException("cannot compile " + name);
+                super.compile(name);
+            }
+        };
+        File broken = write("broken :");
+        File chain = generate(BuildFileGenerator.of(BuildFileGenerator.Shape.CHAIN, 50));
+        try {
+            service(new MakefileModule(2).withBuilders(2), compiler).processFiles(Arrays.asList(broken, chain, broken));
+            Assert.fail("expected the broken build to fail");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("cannot compile broken", e.getMessage());
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+        Assert.assertEquals(50, compiler.compiles.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveBuildersThrows() {
+        new MakefileModule().withBuilders(0);
+    }
+}
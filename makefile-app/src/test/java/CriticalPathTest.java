@@ -0,0 +1,172 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildScheduler;
+import cs.technion.ac.il.sd.app.FileCompileDurations;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the critical path ordering of {@link BuildScheduler}.
+ * Two workers build a slow chain l1 -> l2 next to short pairs sNa -> sNb which come first in the file,
+ * so before any duration is recorded the build starts the slow chain only after the short sources,
+ * and once durations are recorded it starts the slow chain first.
+ */
+public class CriticalPathTest {
+
+    private static final int PAIRS = 12;
+    private static final long SHORT_MILLIS = 2;
+    private static final long LONG_MILLIS = 40;
+
+    /**
+     * Compiler which records the order compilations start in, those of l1 and l2 take LONG_MILLIS
+     * and of everything else SHORT_MILLIS
+     */
+    private static class SleepingCompiler implements ExternalCompiler {
+        private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void compile(String name) {
+            started.add(name);
+            try {
+                Thread.sleep(name.startsWith("l") ? LONG_MILLIS : SHORT_MILLIS);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public boolean wasModified(String name) {
+            return true;
+        }
+
+        @Override
+        public void fail() {
+            throw new AssertionError("should not fail");
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    private static Makefile makefile(MakefileModule module, ExternalCompiler compiler) {
+        return Guice.createInjector(module, new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(compiler);
+            }
+        }).getInstance(Makefile.class);
+    }
+
+    private File buildFile() throws IOException {
+        return buildFile(folder.getRoot());
+    }
+
+    private static File buildFile(File directory) throws IOException {
+        File file = new File(directory, "critical_build.txt");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < PAIRS; i++)
+                writer.write("s" + i + "a :\ns" + i + "b : s" + i + "a\n");
+            writer.write("l1 :\nl2 : l1\n");
+        }
+        return file;
+    }
+
+    /**
+     * @return position at which l1 started compiling
+     */
+    private static int startOfSlowChain(Makefile makefile, SleepingCompiler compiler, File file) {
+        compiler.started.clear();
+        makefile.processFile(file);
+        return compiler.started.indexOf("l1");
+    }
+
+    @Test
+    public void recordedDurationsStartSlowChainFirst() throws IOException {
+        File file = buildFile();
+        SleepingCompiler compiler = new SleepingCompiler();
+        Makefile $ = makefile(new MakefileModule(2), compiler);
+        Assert.assertTrue(startOfSlowChain($, compiler, file) >= PAIRS);
+        Assert.assertTrue(startOfSlowChain($, compiler, file) < 2);
+    }
+
+    @Test
+    public void durationsArePersistedAcrossRuns() throws IOException {
+        File file = buildFile();
+        File durations = new File(folder.getRoot(), "durations.properties");
+        SleepingCompiler compiler = new SleepingCompiler();
+        Assert.assertTrue(startOfSlowChain(makefile(new MakefileModule(2).withCompileDurations(durations), compiler),
+                compiler, file) >= PAIRS);
+        Assert.assertTrue(durations.isFile());
+        Assert.assertTrue(startOfSlowChain(makefile(new MakefileModule(2).withCompileDurations(durations), compiler),
+                compiler, file) < 2);
+    }
+
+    @Test
+    public void durationsAreKeptPerBuildFile() throws IOException {
+        File file = buildFile();
+        File other = buildFile(folder.newFolder("other"));
+        SleepingCompiler compiler = new SleepingCompiler();
+        Makefile $ = makefile(new MakefileModule(2), compiler);
+        Assert.assertTrue(startOfSlowChain($, compiler, file) >= PAIRS);
+        // other declares the same targets, but nothing is recorded for them yet
+        Assert.assertTrue(startOfSlowChain($, compiler, other) >= PAIRS);
+    }
+
+    @Test
+    public void durationsArePersistedPerBuildFile() {
+        File file = new File(folder.getRoot(), "durations.properties");
+        FileCompileDurations durations = new FileCompileDurations(file);
+        durations.record("C:\\first\\build.txt", "t", 5);
+        durations.record("/second/build.txt", "t", 7);
+        durations.flush();
+        FileCompileDurations loaded = new FileCompileDurations(file);
+        Assert.assertEquals(5, loaded.durationOf("C:\\first\\build.txt", "t").getAsLong());
+        Assert.assertEquals(7, loaded.durationOf("/second/build.txt", "t").getAsLong());
+        Assert.assertFalse(loaded.durationOf("/second/build.txt", "u").isPresent());
+        Assert.assertTrue(loaded.isEmpty("/third/build.txt"));
+    }
+
+    @Test
+    public void batchesDoNotRecordDurations() throws IOException {
+        File file = buildFile();
+        File durations = new File(folder.getRoot(), "durations.properties");
+        SleepingCompiler compiler = new SleepingCompiler();
+        // every source is ready at once, and so is every dependant after them, so each wave is a single batch
+        makefile(new MakefileModule(2).withCompileDurations(durations)
+                .withBatching(names -> names.forEach(compiler::compile), 32, 1, TimeUnit.SECONDS), compiler)
+                .processFile(file);
+        Assert.assertEquals(2 * PAIRS + 2, compiler.started.size());
+        Assert.assertFalse(durations.exists());
+    }
+
+    @Test
+    public void durationsAreWrittenOnlyWhenRecorded() {
+        File file = new File(folder.getRoot(), "durations.properties");
+        FileCompileDurations durations = new FileCompileDurations(file);
+        durations.flush();
+        Assert.assertFalse(file.exists());
+        durations.record("build.txt", "a", 5);
+        durations.flush();
+        Assert.assertTrue(file.delete());
+        durations.flush();
+        Assert.assertFalse(file.exists());
+    }
+}
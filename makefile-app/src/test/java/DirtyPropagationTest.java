@@ -0,0 +1,75 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Regression test for dirty propagation on a {@link BuildFileGenerator.Shape#DENSE} DAG:
+ * many modified files all feeding a single hub, which a long chain depends on.
+ * Every compilable must be compiled, and every file asked about, exactly once per build.
+ * Timing of the same graph is in the bench module's DirtyPropagationBenchmark.
+ */
+public class DirtyPropagationTest {
+
+    private static final int SIZE = 40_000;
+
+    private final Map<String, AtomicInteger> compiles = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> probes = new ConcurrentHashMap<>();
+
+    private final Makefile $ = Guice.createInjector(new MakefileModule(), new AbstractModule() {
+        @Override
+        protected void configure() {
+            bind(ExternalCompiler.class).toInstance(new ExternalCompiler() {
+                @Override
+                public void compile(String name) {
+                    compiles.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+                }
+
+                @Override
+                public boolean wasModified(String name) {
+                    probes.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+                    return true;
+                }
+
+                @Override
+                public void fail() {
+                    throw new AssertionError("should not fail");
+                }
+            });
+        }
+    }).getInstance(Makefile.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    private File denseFile(int size) throws IOException {
+        File file = folder.newFile("dense" + size + "_build.txt");
+        BuildFileGenerator.of(BuildFileGenerator.Shape.DENSE, size).writeTo(file);
+        return file;
+    }
+
+    @Test
+    public void denseGraphCompilesAndProbesEachOnce() throws IOException {
+        $.processFile(denseFile(SIZE));
+        Assert.assertEquals(SIZE, compiles.size());
+        Assert.assertTrue(compiles.values().stream().allMatch(count -> count.get() == 1));
+        Assert.assertEquals(SIZE / 2, probes.size());
+        Assert.assertTrue(probes.values().stream().allMatch(count -> count.get() == 1));
+    }
+}
@@ -0,0 +1,200 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.DiskGraphCache;
+import cs.technion.ac.il.sd.app.GraphCache;
+import cs.technion.ac.il.sd.app.GraphSnapshot;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link DiskGraphCache}
+ */
+public class GraphCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    private final ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+    private File cacheDir;
+    private Makefile $;
+
+    @Before
+    public void setup() throws IOException {
+        cacheDir = folder.newFolder("cache");
+        $ = Guice.createInjector(new MakefileModule().withGraphCache(cacheDir), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(mock);
+            }
+        }).getInstance(Makefile.class);
+    }
+
+    private File buildFile(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes());
+        return file;
+    }
+
+    private File[] snapshots() {
+        return cacheDir.listFiles((dir, name) -> name.endsWith(".graph"));
+    }
+
+    @Test
+    public void secondBuildHitsSnapshotAndCompilesTheSame() throws IOException {
+        File file = buildFile("main = f2\nf2 : f1\n");
+        when(mock.wasModified("f1")).thenReturn(true);
+        $.processFile(file);
+        Assert.assertEquals(1, snapshots().length);
+        Optional<GraphSnapshot> snapshot = new DiskGraphCache(cacheDir).lookup(file).snapshot();
+        Assert.assertTrue(snapshot.isPresent());
+        Assert.assertEquals(3, snapshot.get().size());
+        Assert.assertTrue(snapshot.get().isSorted());
+
+        reset(mock);
+        when(mock.wasModified("f1")).thenReturn(true);
+        $.processFile(file);
+        InOrder inOrder = Mockito.inOrder(mock);
+        inOrder.verify(mock).compile("f1");
+        inOrder.verify(mock).compile("f2");
+        inOrder.verify(mock).compile("main");
+        verify(mock, never()).fail();
+    }
+
+    @Test
+    public void targetedBuildStoresWholeGraph() throws IOException {
+        File file = buildFile("main = f2\nf2 : f1\nother : f1\n");
+        when(mock.wasModified("f1")).thenReturn(true);
+        $.processFile(file, Collections.singletonList("f2"));
+        verify(mock, never()).compile("other");
+        GraphSnapshot snapshot = new DiskGraphCache(cacheDir).lookup(file).snapshot().get();
+        Assert.assertEquals(4, snapshot.size());
+        Assert.assertEquals(4, snapshot.order().length);
+    }
+
+    @Test
+    public void changedContentMisses() throws IOException {
+        File file = buildFile("main = f1\n");
+        $.processFile(file);
+        GraphCache.Entry before = new DiskGraphCache(cacheDir).lookup(file);
+        Files.write(file.toPath(), "main = f1, f2\n".getBytes());
+        Assert.assertFalse(new DiskGraphCache(cacheDir).lookup(file).snapshot().isPresent());
+        Assert.assertTrue(before.snapshot().isPresent());
+
+        when(mock.wasModified("f2")).thenReturn(true);
+        $.processFile(file);
+        verify(mock).compile("f2");
+        verify(mock).compile("main");
+        Assert.assertEquals(2, snapshots().length);
+    }
+
+    @Test
+    public void cyclicSnapshotFailsWithoutCompiling() throws IOException {
+        File file = buildFile("a : b\nb : a\nmain = a\n");
+        when(mock.wasModified(anyString())).thenReturn(true);
+        $.processFile(file);
+        $.processFile(file);
+        Assert.assertFalse(new DiskGraphCache(cacheDir).lookup(file).snapshot().get().isSorted());
+        verify(mock, never()).compile(anyString());
+        verify(mock, times(2)).fail();
+    }
+
+    @Test
+    public void corruptedSnapshotIsDroppedAndRebuilt() throws IOException {
+        File file = buildFile("main = f1\n");
+        $.processFile(file);
+        Path snapshot = snapshots()[0].toPath();
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        Assert.assertFalse(new DiskGraphCache(cacheDir).lookup(file).snapshot().isPresent());
+        Assert.assertFalse(Files.exists(snapshot));
+
+        when(mock.wasModified("f1")).thenReturn(true);
+        $.processFile(file);
+        verify(mock).compile("f1");
+        verify(mock).compile("main");
+        Assert.assertTrue(new DiskGraphCache(cacheDir).lookup(file).snapshot().isPresent());
+    }
+
+    private Makefile reducingMakefile() {
+        return Guice.createInjector(new MakefileModule().withGraphCache(cacheDir).withTransitiveReduction(true),
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(ExternalCompiler.class).toInstance(mock);
+                    }
+                }).getInstance(Makefile.class);
+    }
+
+    @Test
+    public void reductionIsStoredAndBuildsTheSame() throws IOException {
+        File file = buildFile("main = t, f.java, f.cpp\nt = f.cpp, f.h\nf.java :\nf.cpp : f.h\n");
+        when(mock.wasModified("f.h")).thenReturn(true);
+        Makefile reducing = reducingMakefile();
+        reducing.processFile(file);
+        GraphSnapshot snapshot = new DiskGraphCache(cacheDir).lookup(file).snapshot().get();
+        Assert.assertTrue(snapshot.hasReduction());
+        int main = -1, fcpp = -1;
+        for (int id = 0; id < snapshot.size(); id++) {
+            if (snapshot.nameOf(id).equals("main"))
+                main = id;
+            if (snapshot.nameOf(id).equals("f.cpp"))
+                fcpp = id;
+        }
+        // main depends on f.cpp through t, t depends on f.h through f.cpp
+        Assert.assertEquals(3, snapshot.dependenciesOf(main).length);
+        Assert.assertEquals(2, snapshot.reducedDependenciesOf(main).length);
+        Assert.assertEquals(1, snapshot.reducedDependenciesOf(fcpp).length);
+
+        reducing.processFile(file);
+        InOrder inOrder = Mockito.inOrder(mock);
+        for (int i = 0; i < 2; i++) {
+            inOrder.verify(mock).compile("f.h");
+            inOrder.verify(mock).compile("f.cpp");
+            inOrder.verify(mock).compile("t");
+            inOrder.verify(mock).compile("main");
+        }
+        verify(mock, times(8)).compile(anyString());
+        verify(mock, never()).compile("f.java");
+    }
+
+    @Test
+    public void snapshotWithoutReductionGetsOne() throws IOException {
+        File file = buildFile("main = a, b\na : b\nb :\n");
+        $.processFile(file);
+        Assert.assertFalse(new DiskGraphCache(cacheDir).lookup(file).snapshot().get().hasReduction());
+        reducingMakefile().processFile(file);
+        Assert.assertTrue(new DiskGraphCache(cacheDir).lookup(file).snapshot().get().hasReduction());
+        Assert.assertEquals(1, snapshots().length);
+    }
+
+    @Test
+    public void cyclicGraphIsNotReduced() throws IOException {
+        File file = buildFile("a : b\nb : a\nmain = a, b\n");
+        Makefile reducing = reducingMakefile();
+        reducing.processFile(file);
+        reducing.processFile(file);
+        Assert.assertFalse(new DiskGraphCache(cacheDir).lookup(file).snapshot().get().hasReduction());
+        verify(mock, times(2)).fail();
+    }
+}
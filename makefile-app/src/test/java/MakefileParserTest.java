@@ -4,15 +4,26 @@ import com.google.inject.Injector;
 import cs.technion.ac.il.sd.ExternalCompiler;
 import cs.technion.ac.il.sd.app.Compilable;
 import cs.technion.ac.il.sd.app.MakefileParser;
+import cs.technion.ac.il.sd.app.ModificationOracle;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.Timeout;
 import org.mockito.Mockito;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -43,6 +54,18 @@ public class MakefileParserTest {
         return $.getCompilable(name).get();
     }
 
+    /** Modified files of $, as last queried */
+    private BitSet modified;
+
+    private void queryModified() {
+        modified = $.modifiedAmong(names -> names.stream().filter(mock::wasModified).collect(Collectors.toSet()),
+                $.getCompilables());
+    }
+
+    private boolean wasModified(String name) {
+        return modified.get(find(name).getId());
+    }
+
     private boolean depends(String who, String onWhom) {
         return $.getDependantsOf(find(who)).contains(find(onWhom));
     }
@@ -78,9 +101,10 @@ public class MakefileParserTest {
     @Test
     public void smallModified() {
         when(mock.wasModified("f1")).thenReturn(true);
-        parseFile("small").updateModified(mock);
-        Assert.assertTrue("f1 was modified", find("f1").wasModified());
-        Assert.assertFalse("main wasnt modified", find("main").wasModified());
+        parseFile("small");
+        queryModified();
+        Assert.assertTrue("f1 was modified", wasModified("f1"));
+        Assert.assertFalse("main wasnt modified", wasModified("main"));
     }
 
     @Test
@@ -114,10 +138,11 @@ public class MakefileParserTest {
     @Test
     public void depModified() {
         when(mock.wasModified(anyString())).thenReturn(true);
-        parseFile("dep").updateModified(mock);
-        Assert.assertTrue("f1 should have been modified", find("f1").wasModified());
-        Assert.assertTrue("f2 should have been modified", find("f2").wasModified());
-        Assert.assertFalse("main shouldn't have been modified", find("main").wasModified());
+        parseFile("dep");
+        queryModified();
+        Assert.assertTrue("f1 should have been modified", wasModified("f1"));
+        Assert.assertTrue("f2 should have been modified", wasModified("f2"));
+        Assert.assertFalse("main shouldn't have been modified", wasModified("main"));
     }
 
     @Test
@@ -181,4 +206,106 @@ public class MakefileParserTest {
 
     }
 
+    private static Map<String, String> describe(MakefileParser p) {
+        Map<String, String> description = new HashMap<>();
+        p.getCompilables().forEach(c -> description.put(c.getName(), c.getType() + " " +
+                p.getDependantsOf(c).stream().map(Compilable::getName).sorted().collect(Collectors.toList())));
+        return description;
+    }
+
+    @Test
+    public void mappedParseMatchesReaderParse() {
+        for (String name : Arrays.asList("small", "dep", "bigger", "cycle", "tasks", "tree")) {
+            File file = new File(getClass().getResource(name + "_build.txt").getFile());
+            Assert.assertEquals(name, describe(MakefileParser.parse(file, Long.MAX_VALUE)), describe(MakefileParser.parse(file, 0)));
+        }
+    }
+
+    @Test
+    public void mappedParseTypesAndModified() {
+        when(mock.wasModified("f1")).thenReturn(true);
+        $ = MakefileParser.parse(new File(getClass().getResource("dep_build.txt").getFile()), 0);
+        queryModified();
+        Assert.assertEquals(Compilable.Type.FILE, find("f2").getType());
+        Assert.assertEquals(Compilable.Type.TASK, find("main").getType());
+        Assert.assertTrue(wasModified("f1"));
+        Assert.assertTrue("main should depend on f2", depends("main", "f2"));
+    }
+
+    /**
+     * Tests that only files among the given compilables are asked about, and that the answer is by id
+     */
+    @Test
+    public void modifiedAmongAsksOnlyAboutGivenFiles() {
+        parseFile("dep");
+        List<String> asked = new ArrayList<>();
+        ModificationOracle oracle = names -> {
+            asked.addAll(names);
+            return new HashSet<>(names);
+        };
+        BitSet modified = $.modifiedAmong(oracle, Arrays.asList(find("f1"), find("main")));
+        Assert.assertEquals(Collections.singletonList("f1"), asked);
+        Assert.assertEquals(Collections.singleton(find("f1").getId()), modified.stream().boxed().collect(Collectors.toSet()));
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A file large enough to be split into several chunks, where declarations in late chunks
+     * must override implicit files and earlier declarations of early chunks
+     */
+    @Test
+    public void parallelParseMatchesSequentialParse() throws IOException {
+        File file = folder.newFile("chunks_build.txt");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("early = late, redeclared\n");
+            writer.write("redeclared = x\n");
+            for (int i = 0; i < 200_000; i++)
+                writer.write("t" + i + " = f" + (i % 1000) + ", t" + (i + 1) + "\n");
+            writer.write("late = x, y\n");
+            writer.write("redeclared : x\n");
+        }
+        $ = MakefileParser.parse(file, 0, 0);
+        Assert.assertEquals(Compilable.Type.TASK, find("late").getType());
+        Assert.assertEquals(Compilable.Type.FILE, find("redeclared").getType());
+        Assert.assertEquals(Compilable.Type.FILE, find("t200000").getType());
+        Assert.assertTrue("late should depend on y", depends("late", "y"));
+        Assert.assertTrue("t7 should depend on f7 and t8", depends("t7", "f7") && depends("t7", "t8"));
+        MakefileParser sequential = MakefileParser.parse(file, Long.MAX_VALUE);
+        Assert.assertEquals(types(sequential), types($));
+        Assert.assertEquals(namesById(sequential), namesById($));
+    }
+
+    private static Map<String, Compilable.Type> types(MakefileParser p) {
+        return p.getCompilables().stream().collect(Collectors.toMap(Compilable::getName, Compilable::getType));
+    }
+
+    private static List<String> namesById(MakefileParser p) {
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < p.getCompilablesCount(); id++)
+            names.add(p.getCompilable(id).getName());
+        return names;
+    }
+
+    @Test
+    public void idsAreDenseAndResolveDependencies() {
+        parseFile("bigger");
+        Assert.assertEquals(9, $.getCompilablesCount());
+        Set<String> names = new HashSet<>();
+        for (int id = 0; id < $.getCompilablesCount(); id++) {
+            Compilable c = $.getCompilable(id);
+            Assert.assertEquals(id, $.getId(c.getName()));
+            Assert.assertEquals(id, c.getId());
+            names.add(c.getName());
+        }
+        Assert.assertEquals(9, names.size());
+        Set<String> dependenciesOfT = Arrays.stream($.getDependencyIds($.getId("t")))
+                .mapToObj(id -> $.getCompilable(id).getName())
+                .collect(Collectors.toSet());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("f.cpp", "f.h", "f.go", "f.py")), dependenciesOfT);
+        Assert.assertEquals(-1, $.getId("missing"));
+        Assert.assertFalse($.getCompilable("missing").isPresent());
+    }
+
 }
@@ -2,14 +2,27 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
 import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileImpl;
 import cs.technion.ac.il.sd.app.MakefileModule;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
@@ -30,10 +43,22 @@ public class MakefileTest {
     private final Makefile $ = injector.getInstance(Makefile.class);
     private final ExternalCompiler mock = injector.getInstance(ExternalCompiler.class);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private void processFile(String name) {
         $.processFile(new File(getClass().getResource(name + "_build.txt").getFile()));
     }
 
+    /**
+     * Builds a binary tree of 2^15 - 1 targets, where every target depends on its parent and the root is t0
+     */
+    private void processBigTree() throws IOException {
+        File file = folder.newFile("tree_build.txt");
+        BuildFileGenerator.of(BuildFileGenerator.Shape.TREE, (1 << 15) - 1).writeTo(file);
+        $.processFile(file);
+    }
+
 
     /**
      * Tests that a file that should not fail doesnt
@@ -131,9 +156,9 @@ public class MakefileTest {
      * meaning all depending on a single root (recursively), compiles the correct amount of times
      */
     @Test
-    public void bigTreeTestCompilesCorrectAmount() {
-        when(mock.wasModified("file")).thenReturn(true);
-        processFile("tree");
+    public void bigTreeTestCompilesCorrectAmount() throws IOException {
+        when(mock.wasModified("t0")).thenReturn(true);
+        processBigTree();
         Mockito.verify(mock, never()).fail();
         Mockito.verify(mock, times(32767)).compile(anyString());
     }
@@ -143,9 +168,9 @@ public class MakefileTest {
      * does not compile in case root hasnt changed
      */
     @Test
-    public void bigTreeTestUnmodifiedShouldNotCompile() {
-        when(mock.wasModified("file")).thenReturn(false);
-        processFile("tree");
+    public void bigTreeTestUnmodifiedShouldNotCompile() throws IOException {
+        when(mock.wasModified("t0")).thenReturn(false);
+        processBigTree();
         Mockito.verify(mock, never()).fail();
         Mockito.verify(mock, never()).compile(anyString());
     }
@@ -176,4 +201,100 @@ public class MakefileTest {
         inOrder.verifyNoMoreInteractions();
 
     }
+
+    private void processFile(String name, String... goals) {
+        $.processFile(new File(getClass().getResource(name + "_build.txt").getFile()), Arrays.asList(goals));
+    }
+
+    /**
+     * Tests that a targeted build compiles only the dependency cone of its goal,
+     * and queries modification only inside it
+     */
+    @Test
+    public void goalBuildsOnlyItsDependencies() {
+        when(mock.wasModified(anyString())).thenReturn(false);
+        when(mock.wasModified("f.asm")).thenReturn(true);
+        processFile("bigger", "f.cpp");
+        InOrder inOrder = Mockito.inOrder(mock);
+        inOrder.verify(mock).compile("f.asm");
+        inOrder.verify(mock).compile("f.go");
+        inOrder.verify(mock).compile("f.cpp");
+        Mockito.verify(mock, times(3)).compile(anyString());
+        Mockito.verify(mock, never()).wasModified("f.java");
+        Mockito.verify(mock, never()).fail();
+    }
+
+    @Test
+    public void severalGoalsBuildTheUnionOfTheirCones() {
+        when(mock.wasModified(anyString())).thenReturn(true);
+        processFile("bigger", "f.go", "f.java", "t2");
+        Mockito.verify(mock).compile("f.asm");
+        Mockito.verify(mock).compile("f.go");
+        Mockito.verify(mock).compile("f.java");
+        Mockito.verify(mock, never()).compile("t2");
+        Mockito.verify(mock, times(3)).compile(anyString());
+    }
+
+    /**
+     * Tests that a cycle outside the cone of the goal does not fail the build
+     */
+    @Test
+    public void cycleOutsideGoalConeDoesNotFail() {
+        when(mock.wasModified(anyString())).thenReturn(true);
+        processFile("cycle", "f.java");
+        Mockito.verify(mock, never()).fail();
+        Mockito.verify(mock, times(1)).compile("f.java");
+        Mockito.verify(mock, times(1)).compile(anyString());
+    }
+
+    @Test
+    public void cycleInsideGoalConeFails() {
+        when(mock.wasModified(anyString())).thenReturn(true);
+        processFile("cycle", "main");
+        Mockito.verify(mock, never()).compile(anyString());
+        Mockito.verify(mock, times(1)).fail();
+    }
+
+    /**
+     * Tests that a long cycle is logged with a bounded number of names
+     */
+    @Test
+    public void longCycleLogsFewNames() throws IOException {
+        File file = folder.newFile("long_cycle_build.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            content.append("c").append(i).append(" : c").append((i + 1) % 100).append('\n');
+        Files.write(file.toPath(), content.toString().getBytes());
+        List<String> messages = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(MakefileImpl.class.getName());
+        logger.addHandler(handler);
+        try {
+            $.processFile(file);
+        } finally {
+            logger.removeHandler(handler);
+        }
+        Mockito.verify(mock, times(1)).fail();
+        Assert.assertEquals(1, messages.size());
+        Assert.assertTrue(messages.get(0), messages.get(0).endsWith(" and 80 more"));
+        Assert.assertEquals(20, messages.get(0).split(", ").length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownGoalThrows() {
+        processFile("bigger", "nope");
+    }
 }
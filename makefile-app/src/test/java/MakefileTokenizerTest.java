@@ -0,0 +1,90 @@
+import cs.technion.ac.il.sd.app.Compilable;
+import cs.technion.ac.il.sd.app.MakefileTokenizer;
+import cs.technion.ac.il.sd.app.NameInterner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link MakefileTokenizer}, checked against the regex based splitting it replaced
+ */
+public class MakefileTokenizerTest {
+
+    private static final String LEGACY_SPLITTER = "[\\s[=|:]\\s]+|[,\\s+]+|[\\s+$]";
+
+    private static final List<String> LINES = Arrays.asList(
+            "main = t, f.java, f.cpp",
+            "f.cpp : f.h, f.go, f.py",
+            "f.java :",
+            "t2 =",
+            "  f2: f1  ",
+            "t1 = f,f.java ,  f.cpp",
+            "\tmain\t=\tf1",
+            "a=b",
+            "a:b",
+            "lib+ = x$y | z",
+            ": lonely",
+            "t === f");
+
+    private static List<String> legacyTokens(String line) {
+        List<String> tokens = new ArrayList<>();
+        for (String s : line.trim().split(LEGACY_SPLITTER))
+            if (!s.trim().equals(""))
+                tokens.add(s);
+        return tokens;
+    }
+
+    private static List<Object> tokenize(String line) {
+        List<Object> result = new ArrayList<>();
+        MakefileTokenizer.tokenize(line, (target, type, dependencies) -> {
+            result.add(type);
+            result.add(target);
+            result.addAll(dependencies);
+        });
+        return result;
+    }
+
+    @Test
+    public void matchesLegacySplitting() {
+        for (String line : LINES) {
+            List<Object> expected = new ArrayList<>();
+            expected.add(line.contains(":") ? Compilable.Type.FILE : Compilable.Type.TASK);
+            expected.addAll(legacyTokens(line));
+            Assert.assertEquals("line: " + line, expected, tokenize(line));
+        }
+    }
+
+    @Test
+    public void blankLinesAreIgnored() {
+        Assert.assertTrue(tokenize("").isEmpty());
+        Assert.assertTrue(tokenize("   \t ").isEmpty());
+        Assert.assertTrue(tokenize(" = , :").isEmpty());
+    }
+
+    @Test
+    public void bytesAreInternedOncePerName() {
+        ByteBuffer bytes = ByteBuffer.wrap("f.java f.java f.jav\u00e9 f.jav\u00e9 f.javb t\tu"
+                .getBytes(StandardCharsets.UTF_8));
+        NameInterner names = new NameInterner(StandardCharsets.UTF_8);
+        List<String> interned = new ArrayList<>();
+        MakefileTokenizer.tokenize(bytes, 0, bytes.limit(), names, (target, type, dependencies) -> {
+            interned.add(target);
+            interned.addAll(dependencies);
+        });
+        Assert.assertEquals(Arrays.asList("f.java", "f.java", "f.jav\u00e9", "f.jav\u00e9", "f.javb", "t", "u"), interned);
+        Assert.assertSame(interned.get(0), interned.get(1));
+        Assert.assertSame(interned.get(2), interned.get(3));
+        Assert.assertEquals(5, names.size());
+    }
+
+    @Test
+    public void targetWithoutDependencies() {
+        Assert.assertEquals(Arrays.asList(Compilable.Type.FILE, "f.java"), tokenize("f.java :"));
+        Assert.assertEquals(Arrays.asList(Compilable.Type.TASK, "t2"), tokenize("t2 ="));
+    }
+}
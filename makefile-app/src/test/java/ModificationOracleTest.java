@@ -0,0 +1,90 @@
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildMetrics;
+import cs.technion.ac.il.sd.app.ExternalModificationOracle;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ExternalModificationOracle}
+ */
+public class ModificationOracleTest {
+
+    private final ExecutorService probers = Executors.newFixedThreadPool(4);
+    private final ExternalCompiler mock = Mockito.mock(ExternalCompiler.class);
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @After
+    public void shutdown() {
+        probers.shutdownNow();
+    }
+
+    @Test
+    public void returnsModifiedNamesAndProbesEachNameOnce() {
+        when(mock.wasModified("a")).thenReturn(true);
+        when(mock.wasModified("c")).thenReturn(true);
+        Set<String> modified = new ExternalModificationOracle(mock, probers, BuildMetrics.NONE)
+                .modified(Arrays.asList("a", "b", "a", "c", "b", "a"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c")), modified);
+        verify(mock, times(1)).wasModified("a");
+        verify(mock, times(1)).wasModified("b");
+        verify(mock, times(1)).wasModified("c");
+    }
+
+    @Test
+    public void emptyQueryProbesNothing() {
+        Assert.assertTrue(new ExternalModificationOracle(mock, probers, BuildMetrics.NONE).modified(Collections.emptyList()).isEmpty());
+        verifyZeroInteractions(mock);
+    }
+
+    /**
+     * Every probe waits until 4 probes are in flight, which only happens if they are fanned out
+     */
+    @Test
+    public void slowProbesOverlap() {
+        CountDownLatch inFlight = new CountDownLatch(4);
+        ExternalCompiler slow = new ExternalCompiler() {
+            @Override
+            public void compile(String name) {
+            }
+
+            @Override
+            public boolean wasModified(String name) {
+                inFlight.countDown();
+                try {
+                    return inFlight.await(5, TimeUnit.SECONDS) && name.endsWith("0");
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            @Override
+            public void fail() {
+            }
+        };
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            names.add("f" + i);
+        Set<String> modified = new ExternalModificationOracle(slow, probers, BuildMetrics.NONE).modified(names);
+        Assert.assertEquals(0, inFlight.getCount());
+        Assert.assertEquals(10, modified.size());
+    }
+}
@@ -0,0 +1,286 @@
+package cs.technion.ac.il.sd.app;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Streaming generator of synthetic build files, for tests and benchmarks.
+ * Targets are named t0, t1, ... and every target of the shape depends only on targets with smaller ids,
+ * so the generated graph is acyclic unless cycles are planted.
+ * Targets without dependencies are files, the rest are tasks.
+ * Each target's dependencies are derived from the seed and its id alone, so the output is deterministic,
+ * and targets are emitted one at a time, so memory does not grow with the number of targets
+ * (except for the single sink of {@link Shape#FAN_IN} and the hub of {@link Shape#DENSE},
+ * whose dependencies are a share of all targets).
+ */
+public final class BuildFileGenerator {
+
+    public enum Shape {
+        /** t(i) depends on t(i-1) */
+        CHAIN,
+        /** t(i) depends on its parent in a tree of the given fan-out rooted at t0 */
+        TREE,
+        /** The last target depends on all others */
+        FAN_IN,
+        /** Every target depends on t0 */
+        FAN_OUT,
+        /** Square lattice of diamonds, every target depends on two targets of the row above it */
+        DIAMOND,
+        /** Every target depends on density targets on average, chosen uniformly from the targets before it */
+        RANDOM,
+        /**
+         * Targets are split into layers, like modules of a monorepo, every target depends on density targets
+         * of the layer below it on average, and sometimes on a target of a lower layer
+         */
+        LAYERED,
+        /**
+         * The first half of the targets are files which all feed a hub task, every later task depends on the task
+         * before it and on the hub, so every file reaches every task
+         */
+        DENSE
+    }
+
+    /**
+     * Receives generated targets, in the order they are generated
+     */
+    public interface TargetConsumer {
+        void accept(int id, Compilable.Type type, int[] dependencies) throws IOException;
+    }
+
+    private static final int[] NONE = new int[0];
+    /** Chance of a {@link Shape#LAYERED} target to also depend on a target of a lower layer */
+    private static final double SKIP_LAYER_CHANCE = 0.1;
+
+    private final Shape shape;
+    private final int size;
+    private long seed;
+    private double density = 2;
+    private int fanOut = 2;
+    private int layers = 10;
+    private int cycles;
+    private int cycleLength = 1;
+
+    private BuildFileGenerator(Shape shape, int size) {
+        this.shape = shape;
+        this.size = size;
+    }
+
+    /**
+     * @param size number of targets in shape, not counting targets added by planted cycles
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public static BuildFileGenerator of(Shape shape, int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("size must be positive, got " + size);
+        return new BuildFileGenerator(shape, size);
+    }
+
+    public BuildFileGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param density average number of dependencies of a {@link Shape#RANDOM} or {@link Shape#LAYERED} target
+     */
+    public BuildFileGenerator withDensity(double density) {
+        if (density < 0 || Double.isNaN(density))
+            throw new IllegalArgumentException("density must not be negative, got " + density);
+        this.density = density;
+        return this;
+    }
+
+    /**
+     * @param fanOut number of children of every {@link Shape#TREE} node
+     */
+    public BuildFileGenerator withFanOut(int fanOut) {
+        if (fanOut < 1)
+            throw new IllegalArgumentException("fan-out must be positive, got " + fanOut);
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * @param layers number of {@link Shape#LAYERED} layers
+     */
+    public BuildFileGenerator withLayers(int layers) {
+        if (layers < 1)
+            throw new IllegalArgumentException("layers must be positive, got " + layers);
+        this.layers = layers;
+        return this;
+    }
+
+    /**
+     * Plants count disjoint cycles, each going through a target of the shape and length new tasks.
+     * The targets cycles go through are spread evenly over the shape.
+     *
+     * @throws IllegalArgumentException if count is negative or more than size, or if length is not positive
+     */
+    public BuildFileGenerator withPlantedCycles(int count, int length) {
+        if (count < 0 || count > size)
+            throw new IllegalArgumentException("cycle count must be between 0 and " + size + ", got " + count);
+        if (length < 1)
+            throw new IllegalArgumentException("cycle length must be positive, got " + length);
+        this.cycles = count;
+        this.cycleLength = length;
+        return this;
+    }
+
+    /**
+     * @return number of generated targets, including the ones added by planted cycles
+     */
+    public int targetCount() {
+        return size + cycles * cycleLength;
+    }
+
+    public static String nameOf(int id) {
+        return "t" + id;
+    }
+
+    /**
+     * Passes every target to consumer, in increasing order of ids
+     */
+    public void generate(TargetConsumer consumer) throws IOException {
+        int nextCycle = 0;
+        for (int v = 0; v < size; v++) {
+            int[] dependencies = dependenciesOf(v);
+            if (nextCycle < cycles && anchorOf(nextCycle) == v) {
+                dependencies = Arrays.copyOf(dependencies, dependencies.length + 1);
+                dependencies[dependencies.length - 1] = size + (nextCycle + 1) * cycleLength - 1;
+                nextCycle++;
+            }
+            consumer.accept(v, dependencies.length == 0 ? Compilable.Type.FILE : Compilable.Type.TASK, dependencies);
+        }
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            int first = size + cycle * cycleLength;
+            consumer.accept(first, Compilable.Type.TASK, new int[]{anchorOf(cycle)});
+            for (int id = first + 1; id < first + cycleLength; id++)
+                consumer.accept(id, Compilable.Type.TASK, new int[]{id - 1});
+        }
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder();
+        generate((id, type, dependencies) -> {
+            line.setLength(0);
+            line.append('t').append(id).append(type == Compilable.Type.FILE ? " :" : " =");
+            for (int i = 0; i < dependencies.length; i++)
+                line.append(i == 0 ? " t" : ", t").append(dependencies[i]);
+            writer.append(line).append('\n');
+        });
+    }
+
+    public void writeTo(File file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writeTo(writer);
+        }
+    }
+
+    private int anchorOf(int cycle) {
+        return (int) ((long) cycle * size / cycles);
+    }
+
+    private int[] dependenciesOf(int v) {
+        switch (shape) {
+            case CHAIN:
+                return v == 0 ? NONE : new int[]{v - 1};
+            case TREE:
+                return v == 0 ? NONE : new int[]{(v - 1) / fanOut};
+            case FAN_IN:
+                if (v < size - 1 || size == 1)
+                    return NONE;
+                int[] all = new int[size - 1];
+                Arrays.setAll(all, i -> i);
+                return all;
+            case FAN_OUT:
+                return v == 0 ? NONE : new int[]{0};
+            case DIAMOND:
+                int width = Math.max(1, (int) Math.sqrt(size));
+                int row = v / width, column = v % width;
+                if (row == 0)
+                    return NONE;
+                int above = (row - 1) * width;
+                return width == 1 ? new int[]{above} : new int[]{above + column, above + (column + 1) % width};
+            case RANDOM:
+                return pick(randomOf(v), 0, v, density);
+            case LAYERED:
+                int layerSize = Math.max(1, (size + layers - 1) / layers);
+                int layer = v / layerSize;
+                if (layer == 0)
+                    return NONE;
+                SplittableRandom random = randomOf(v);
+                int[] below = pick(random, (layer - 1) * layerSize, layer * layerSize, Math.max(1, density));
+                if (layer < 2 || random.nextDouble() >= SKIP_LAYER_CHANCE)
+                    return below;
+                int[] withLower = Arrays.copyOf(below, below.length + 1);
+                withLower[below.length] = random.nextInt((layer - 1) * layerSize);
+                return withLower;
+            case DENSE:
+                int hub = size / 2;
+                if (v < hub)
+                    return NONE;
+                if (v == hub) {
+                    int[] files = new int[hub];
+                    Arrays.setAll(files, i -> i);
+                    return files;
+                }
+                return v == hub + 1 ? new int[]{hub} : new int[]{v - 1, hub};
+            default:
+                throw new AssertionError(shape);
+        }
+    }
+
+    /**
+     * @return a generator for the dependencies of v, independent of the generators of other targets
+     */
+    private SplittableRandom randomOf(int v) {
+        long z = seed + (v + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    /**
+     * @return distinct ids in from..to-1, as many as average on average, and no more than there are
+     */
+    private static int[] pick(SplittableRandom random, int from, int to, double average) {
+        int whole = (int) average;
+        int count = Math.min(to - from, whole + (random.nextDouble() < average - whole ? 1 : 0));
+        int[] picked = new int[count];
+        for (int i = 0; i < count; i++) {
+            int id;
+            do {
+                id = from + random.nextInt(to - from);
+            } while (contains(picked, i, id));
+            picked[i] = id;
+        }
+        return picked;
+    }
+
+    private static boolean contains(int[] ids, int length, int id) {
+        for (int i = 0; i < length; i++)
+            if (ids[i] == id)
+                return true;
+        return false;
+    }
+
+    /**
+     * Writes a build file, arguments are: output file, shape, size and optionally seed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: BuildFileGenerator <file> <" + Arrays.toString(Shape.values()) + "> <size> [seed]");
+            System.exit(1);
+        }
+        BuildFileGenerator generator = of(Shape.valueOf(args[1]), Integer.parseInt(args[2]));
+        if (args.length > 3)
+            generator.withSeed(Long.parseLong(args[3]));
+        generator.writeTo(new File(args[0]));
+    }
+}
@@ -0,0 +1,55 @@
+package cs.technion.ac.il.sd.bench;
+
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.library.IntGraph;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Inputs for benchmarks, all made by a {@link BuildFileGenerator} with a fixed seed
+ */
+public final class BenchGraphs {
+
+    public static final long SEED = 42;
+
+    private BenchGraphs() {
+    }
+
+    public static BuildFileGenerator generator(BuildFileGenerator.Shape shape, int size) {
+        return BuildFileGenerator.of(shape, size).withSeed(SEED);
+    }
+
+    public static File buildFile(BuildFileGenerator.Shape shape, int size) throws IOException {
+        File file = File.createTempFile("bench-" + shape.name().toLowerCase() + size + "-", "_build.txt");
+        file.deleteOnExit();
+        generator(shape, size).writeTo(file);
+        return file;
+    }
+
+    /**
+     * @return the generated graph, vertices are target ids and edges go from dependency to dependant
+     */
+    public static DirectedGraph<Integer, DefaultEdge> graph(BuildFileGenerator.Shape shape, int size) throws IOException {
+        DirectedGraph<Integer, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
+        generator(shape, size).generate((id, type, dependencies) -> {
+            graph.addVertex(id);
+            for (int dependency : dependencies)
+                graph.addEdge(dependency, id);
+        });
+        return graph;
+    }
+
+    public static IntGraph intGraph(BuildFileGenerator.Shape shape, int size) throws IOException {
+        BuildFileGenerator generator = generator(shape, size);
+        IntGraph.Builder builder = IntGraph.builder(generator.targetCount());
+        generator.generate((id, type, dependencies) -> {
+            for (int dependency : dependencies)
+                builder.addEdge(dependency, id);
+        });
+        return builder.build();
+    }
+}
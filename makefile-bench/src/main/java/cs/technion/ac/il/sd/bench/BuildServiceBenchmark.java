@@ -0,0 +1,91 @@
+package cs.technion.ac.il.sd.bench;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.BuildService;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of {@link BuildService} running 1, 8 or 64 builds at once,
+ * each of its own build file, against a compiler which does nothing.
+ * A single invocation processes all files, so throughput is in rounds of concurrent builds,
+ * and the sampled time of an invocation is the latency of its slowest build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BuildServiceBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int concurrentBuilds;
+
+    @Param({"10000"})
+    public int size;
+
+    private final List<File> files = new ArrayList<>();
+    private BuildService service;
+
+    @Setup
+    public void setup() throws IOException {
+        for (int i = 0; i < concurrentBuilds; i++) {
+            File file = File.createTempFile("bench_service", "_build.txt");
+            BuildFileGenerator.of(BuildFileGenerator.Shape.LAYERED, size).withSeed(BenchGraphs.SEED + i).writeTo(file);
+            files.add(file);
+        }
+        ExternalCompiler noop = new ExternalCompiler() {
+            @Override
+            public void compile(String name) {
+            }
+
+            @Override
+            public boolean wasModified(String name) {
+                return true;
+            }
+
+            @Override
+            public void fail() {
+                throw new IllegalStateException("benchmark graphs are acyclic");
+            }
+        };
+        service = Guice.createInjector(new MakefileModule().withBuilders(concurrentBuilds), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(noop);
+            }
+        }).getInstance(BuildService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        files.forEach(File::delete);
+        files.clear();
+    }
+
+    @Benchmark
+    public void processFiles() {
+        service.processFiles(files);
+    }
+}
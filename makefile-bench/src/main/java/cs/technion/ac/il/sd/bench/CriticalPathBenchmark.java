@@ -0,0 +1,117 @@
+package cs.technion.ac.il.sd.bench;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildScheduler;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makespan of the critical path order of {@link BuildScheduler}, with and without recorded durations.
+ * Two workers build a slow chain l1 -> l2 next to short pairs sNa -> sNb which come first in the file,
+ * against a compiler which sleeps SHORT_MILLIS per short target and LONG_MILLIS per slow one.
+ * The short targets take as long as the chain on a single worker, so a build which starts the chain first
+ * ends about when the chain does, while one in file order starts it only after the short sources.
+ * Durations are kept per build file, so without recorded durations every build is of a new copy of the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CriticalPathBenchmark {
+
+    private static final int PAIRS = 20;
+    private static final long SHORT_MILLIS = 2;
+    private static final long LONG_MILLIS = 40;
+
+    @Param({"false", "true"})
+    public boolean recorded;
+
+    private File file;
+    private Makefile makefile;
+
+    @Setup
+    public void setup() throws IOException {
+        ExternalCompiler sleeping = new ExternalCompiler() {
+            @Override
+            public void compile(String name) {
+                try {
+                    Thread.sleep(name.startsWith("l") ? LONG_MILLIS : SHORT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public boolean wasModified(String name) {
+                return true;
+            }
+
+            @Override
+            public void fail() {
+                throw new IllegalStateException("benchmark graph is acyclic");
+            }
+        };
+        makefile = Guice.createInjector(new MakefileModule(2), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(sleeping);
+            }
+        }).getInstance(Makefile.class);
+        if (recorded) {
+            file = buildFile();
+            makefile.processFile(file);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newFile() throws IOException {
+        if (recorded)
+            return;
+        if (file != null)
+            file.delete();
+        file = buildFile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static File buildFile() throws IOException {
+        File file = File.createTempFile("bench-critical-", "_build.txt");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < PAIRS; i++)
+                writer.write("s" + i + "a :\ns" + i + "b : s" + i + "a\n");
+            writer.write("l1 :\nl2 : l1\n");
+        }
+        return file;
+    }
+
+    @Benchmark
+    public void processFile() {
+        makefile.processFile(file);
+    }
+}
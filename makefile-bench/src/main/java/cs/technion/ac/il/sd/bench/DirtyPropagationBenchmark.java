@@ -0,0 +1,80 @@
+package cs.technion.ac.il.sd.bench;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dirty propagation on a {@link BuildFileGenerator.Shape#DENSE} DAG of size targets: half of them are modified files
+ * which all feed a single hub, which a chain of the other half depends on.
+ * Linear propagation makes the time grow with size, a walk per modified file with its square.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DirtyPropagationBenchmark {
+
+    @Param({"1000", "4000", "16000"})
+    public int size;
+
+    private File file;
+    private Makefile makefile;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchGraphs.buildFile(BuildFileGenerator.Shape.DENSE, size);
+        ExternalCompiler noop = new ExternalCompiler() {
+            @Override
+            public void compile(String name) {
+            }
+
+            @Override
+            public boolean wasModified(String name) {
+                return true;
+            }
+
+            @Override
+            public void fail() {
+                throw new IllegalStateException("benchmark graph is acyclic");
+            }
+        };
+        makefile = Guice.createInjector(new MakefileModule(), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(noop);
+            }
+        }).getInstance(Makefile.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void processFile() {
+        makefile.processFile(file);
+    }
+}
@@ -0,0 +1,95 @@
+package cs.technion.ac.il.sd.bench;
+
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.library.IntGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Retained heap of an {@link IntGraph} next to a jgrapht {@link DefaultDirectedGraph} of the same generated graph,
+ * which JMH does not measure. A graph's footprint is the growth of the used heap across building it,
+ * each side measured after full collections, with the graph still referenced.
+ * Run with the parallel collector, whose used heap is exact right after an explicit collection, e.g.
+ * java -XX:+UseParallelGC -cp benchmarks.jar cs.technion.ac.il.sd.bench.GraphFootprint [result.json]
+ */
+public final class GraphFootprint {
+
+    private static final BuildFileGenerator.Shape[] SHAPES = {
+            BuildFileGenerator.Shape.CHAIN, BuildFileGenerator.Shape.RANDOM, BuildFileGenerator.Shape.LAYERED};
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int REPETITIONS = 3;
+
+    @FunctionalInterface
+    private interface GraphFactory {
+        Object create() throws IOException;
+    }
+
+    /** Keeps the measured graph reachable until the heap is sampled */
+    private static volatile Object held;
+
+    private GraphFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String result = args.length > 0 ? args[0] : "footprint.json";
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(result), StandardCharsets.UTF_8))) {
+            out.println("[");
+            String separator = "";
+            for (BuildFileGenerator.Shape shape : SHAPES) {
+                for (int size : SIZES) {
+                    int edges = BenchGraphs.intGraph(shape, size).edgeCount();
+                    long intGraph = retained(() -> BenchGraphs.intGraph(shape, size));
+                    long jgrapht = retained(() -> BenchGraphs.graph(shape, size));
+                    System.out.printf("%-8s %9d vertices %9d edges: IntGraph %,13d B, DefaultDirectedGraph %,13d B (%.1fx)%n",
+                            shape, size, edges, intGraph, jgrapht, (double) jgrapht / intGraph);
+                    out.printf("%s    {\"shape\" : \"%s\", \"vertices\" : %d, \"edges\" : %d, "
+                                    + "\"intGraphBytes\" : %d, \"defaultDirectedGraphBytes\" : %d}",
+                            separator, shape, size, edges, intGraph, jgrapht);
+                    separator = ",\n";
+                }
+            }
+            out.println();
+            out.println("]");
+        }
+    }
+
+    /**
+     * @return median, over REPETITIONS, of the heap retained by the object factory creates.
+     *  A first object is created and dropped unmeasured, so classes it loads are not counted
+     */
+    private static long retained(GraphFactory factory) throws IOException, InterruptedException {
+        held = factory.create();
+        held = null;
+        long[] samples = new long[REPETITIONS];
+        for (int i = 0; i < REPETITIONS; i++) {
+            long before = settledHeap();
+            held = factory.create();
+            samples[i] = settledHeap() - before;
+            held = null;
+        }
+        Arrays.sort(samples);
+        return samples[REPETITIONS / 2];
+    }
+
+    private static long settledHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            Thread.sleep(50);
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used)
+                break;
+            used = now;
+        }
+        return Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+}
@@ -0,0 +1,124 @@
+package cs.technion.ac.il.sd.bench;
+
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.library.GraphUtils;
+import cs.technion.ac.il.sd.library.IntGraph;
+import cs.technion.ac.il.sd.library.ToposortResult;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link GraphUtils} operations, on jgrapht graphs and on {@link IntGraph}s of the same shape
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GraphUtilsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"CHAIN", "TREE", "FAN_IN", "FAN_OUT", "DIAMOND", "RANDOM", "LAYERED"})
+    public BuildFileGenerator.Shape shape;
+
+    private DirectedGraph<Integer, DefaultEdge> graph;
+    private IntGraph intGraph;
+
+    @Setup
+    public void setup() throws IOException {
+        graph = BenchGraphs.graph(shape, size);
+        intGraph = BenchGraphs.intGraph(shape, size);
+    }
+
+    private static void consume(Iterator<Integer> iterator, Blackhole blackhole) {
+        while (iterator.hasNext())
+            blackhole.consume(iterator.next());
+    }
+
+    @Benchmark
+    public void toposort(Blackhole blackhole) {
+        consume(GraphUtils.toposort(graph).get(), blackhole);
+    }
+
+    @Benchmark
+    public ToposortResult<Integer> toposortOrCycle() {
+        return GraphUtils.toposortOrCycle(graph);
+    }
+
+    @Benchmark
+    public boolean hasCycle() {
+        return GraphUtils.hasCycle(graph);
+    }
+
+    @Benchmark
+    public Set<Integer> sources() {
+        return GraphUtils.getSourcesVertices(graph);
+    }
+
+    @Benchmark
+    public Set<Integer> leaves() {
+        return GraphUtils.getLeafVertices(graph);
+    }
+
+    @Benchmark
+    public Set<Integer> reachability() {
+        return GraphUtils.getAllReachableVerticesFromSource(graph, 0);
+    }
+
+    @Benchmark
+    public void dfsTraversal(Blackhole blackhole) {
+        consume(GraphUtils.DFSTraverseCrossComponent(graph, Optional.empty()), blackhole);
+    }
+
+    @Benchmark
+    public void bfsTraversal(Blackhole blackhole) {
+        consume(GraphUtils.BFSTraverseCrossComponent(graph, Optional.empty()), blackhole);
+    }
+
+    @Benchmark
+    public Optional<int[]> intToposort() {
+        return GraphUtils.toposort(intGraph);
+    }
+
+    @Benchmark
+    public boolean intHasCycle() {
+        return GraphUtils.hasCycle(intGraph);
+    }
+
+    @Benchmark
+    public int[] intSources() {
+        return GraphUtils.getSourcesVertices(intGraph);
+    }
+
+    @Benchmark
+    public int[] intLeaves() {
+        return GraphUtils.getLeafVertices(intGraph);
+    }
+
+    @Benchmark
+    public BitSet intReachability() {
+        return GraphUtils.getAllReachableVerticesFromSource(intGraph, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package cs.technion.ac.il.sd.bench;
+
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.MakefileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link MakefileParser#parse}, reading lines through a reader, tokenizing a memory mapping
+ * sequentially, or tokenizing it in parallel chunks, whatever the file size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"CHAIN", "TREE", "FAN_IN", "FAN_OUT", "DIAMOND", "RANDOM", "LAYERED"})
+    public BuildFileGenerator.Shape shape;
+
+    @Param({"READER", "MAPPED", "PARALLEL"})
+    public Reading reading;
+
+    public enum Reading {
+        READER(Long.MAX_VALUE, Long.MAX_VALUE),
+        MAPPED(0, Long.MAX_VALUE),
+        PARALLEL(0, 0);
+
+        private final long mappedThreshold;
+        private final long parallelThreshold;
+
+        Reading(long mappedThreshold, long parallelThreshold) {
+            this.mappedThreshold = mappedThreshold;
+            this.parallelThreshold = parallelThreshold;
+        }
+    }
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchGraphs.buildFile(shape, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public MakefileParser parse() {
+        return MakefileParser.parse(file, reading.mappedThreshold, reading.parallelThreshold);
+    }
+}
@@ -0,0 +1,85 @@
+package cs.technion.ac.il.sd.bench;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import cs.technion.ac.il.sd.ExternalCompiler;
+import cs.technion.ac.il.sd.app.BuildFileGenerator;
+import cs.technion.ac.il.sd.app.Makefile;
+import cs.technion.ac.il.sd.app.MakefileModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmarks for {@link Makefile#processFile}, against a compiler which does nothing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProcessFileBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"CHAIN", "TREE", "FAN_IN", "FAN_OUT", "DIAMOND", "RANDOM", "LAYERED"})
+    public BuildFileGenerator.Shape shape;
+
+    /** Whether every file reports modification, so everything is compiled, or none does */
+    @Param({"true", "false"})
+    public boolean modified;
+
+    private File file;
+    private Makefile makefile;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchGraphs.buildFile(shape, size);
+        ExternalCompiler noop = new ExternalCompiler() {
+            @Override
+            public void compile(String name) {
+            }
+
+            @Override
+            public boolean wasModified(String name) {
+                return modified;
+            }
+
+            @Override
+            public void fail() {
+                throw new IllegalStateException("benchmark graphs are acyclic");
+            }
+        };
+        makefile = Guice.createInjector(new MakefileModule(), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalCompiler.class).toInstance(noop);
+            }
+        }).getInstance(Makefile.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void processFile() {
+        makefile.processFile(file);
+    }
+}